@@ -1,20 +1,41 @@
 package edu.sustech.xiangqi.model;
 
 public abstract class AbstractPiece {
-    private final String name;
+    // 单个棋子最多的目标格数（车在空旷的横竖线上：8 + 9）
+    public static final int MAX_TARGETS = 17;
+    // 车、炮的四个直线方向：上、下、左、右
+    protected static final int[][] LINE_DIRECTIONS = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+
+    private final PieceType type;
     private final boolean isRed;
+    private final int code;
     private int row;
     private int col;
 
-    public AbstractPiece(String name, int row, int col, boolean isRed) {
-        this.name = name;
+    public AbstractPiece(PieceType type, int row, int col, boolean isRed) {
+        this.type = type;
         this.row = row;
         this.col = col;
         this.isRed = isRed;
+        this.code = type.getCode(isRed);
+    }
+
+    public PieceType getType() {
+        return type;
     }
 
+    /**
+     * 棋子编码（种类 + 颜色），红方 0~6，黑方 7~13，用于各类查表
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * 显示用的中文名，仅在绘制时使用
+     */
     public String getName() {
-        return name;
+        return type.getDisplayName(isRed);
     }
 
     public int getRow() {
@@ -37,6 +58,9 @@ public abstract class AbstractPiece {
         return isRed;
     }
 
+    /**
+     * 只修改棋子自身的坐标，在棋盘上移动棋子请使用 ChessBoardModel.movePiece，以保持数组棋盘同步
+     */
     public void moveTo(int newRow, int newCol) {
         this.row = newRow;
         this.col = newCol;
@@ -48,6 +72,24 @@ public abstract class AbstractPiece {
      */
     public abstract boolean canMoveTo(int targetRow, int targetCol, ChessBoardModel model);
 
+    /**
+     * 生成棋子当前能到达的所有目标格（与 canMoveTo 返回 true 的格子完全一致）
+     * 目标格以 row * COLS + col 的格子索引追加到 targets[count] 之后
+     * @return 追加后的目标格总数
+     */
+    public abstract int generateMoves(ChessBoardModel model, int[] targets, int count);
+
+    /**
+     * 目标格为空或是对方棋子时追加该格，供各棋子的 generateMoves 使用
+     */
+    protected int addTarget(ChessBoardModel model, int square, int[] targets, int count) {
+        AbstractPiece targetPiece = model.getPieceAt(square);
+        if (targetPiece == null || targetPiece.isRed() != isRed) {
+            targets[count++] = square;
+        }
+        return count;
+    }
+
     /**
      * 创建并返回当前棋子的一个深拷贝对象
      */
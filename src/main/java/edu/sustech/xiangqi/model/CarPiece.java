@@ -5,13 +5,13 @@ package edu.sustech.xiangqi.model;
  */
 public class CarPiece extends AbstractPiece {
 
-    public CarPiece(String name, int row, int col, boolean isRed) {
-        super(name, row, col, isRed);
+    public CarPiece(int row, int col, boolean isRed) {
+        super(PieceType.CAR, row, col, isRed);
     }
 
     @Override
     public AbstractPiece copy() {
-        return new CarPiece(this.getName(), this.getRow(), this.getCol(), this.isRed());
+        return new CarPiece(this.getRow(), this.getCol(), this.isRed());
     }
 
     @Override
@@ -59,4 +59,26 @@ public class CarPiece extends AbstractPiece {
 
         return true;
     }
+
+    @Override
+    public int generateMoves(ChessBoardModel model, int[] targets, int count) {
+        for (int[] d : LINE_DIRECTIONS) {
+            int r = getRow() + d[0];
+            int c = getCol() + d[1];
+            while (model.isValidPosition(r, c)) {
+                AbstractPiece piece = model.getPieceAt(r, c);
+                if (piece == null) {
+                    targets[count++] = ChessBoardModel.toSquare(r, c);
+                } else {
+                    if (piece.isRed() != isRed()) {
+                        targets[count++] = ChessBoardModel.toSquare(r, c); // 吃掉路径上的第一个对方棋子
+                    }
+                    break;
+                }
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return count;
+    }
 }
@@ -1,6 +1,7 @@
 package edu.sustech.xiangqi.model;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class ChessBoardModel {
@@ -8,6 +9,18 @@ public class ChessBoardModel {
     private final List<AbstractPiece> pieces;
     private static final int ROWS = 10;
     private static final int COLS = 9;
+    // 按格子索引 (row * COLS + col) 存放棋子的数组棋盘，与 pieces 保持同步，用于 O(1) 查找
+    private final AbstractPiece[] board = new AbstractPiece[ROWS * COLS];
+    // 缓存的帅、将所在格子索引，-1 表示不在棋盘上
+    private int redGeneralSquare = -1;
+    private int blackGeneralSquare = -1;
+    // 棋子部分的 Zobrist 键（不含走棋方），随增删移动棋子增量更新
+    private long zobristKey = 0L;
+    // 双方的子力分和位置分（下标 0 为红方，1 为黑方），随增删移动棋子增量更新
+    private final int[] material = new int[2];
+    private final int[] position = new int[2];
+    // 按棋子编码统计的棋子数量
+    private final int[] pieceCounts = new int[PieceType.CODE_COUNT];
 
     public ChessBoardModel() {
         pieces = new ArrayList<>();
@@ -15,43 +28,43 @@ public class ChessBoardModel {
     }
 
     public void initializePieces() {
-        pieces.clear();
+        clear();
         // 黑方棋子
-        pieces.add(new GeneralPiece("将", 0, 4, false));
-        pieces.add(new SoldierPiece("卒", 3, 0, false));
-        pieces.add(new SoldierPiece("卒", 3, 2, false));
-        pieces.add(new SoldierPiece("卒", 3, 4, false));
-        pieces.add(new SoldierPiece("卒", 3, 6, false));
-        pieces.add(new SoldierPiece("卒", 3, 8, false));
-        pieces.add(new CarPiece("车", 0, 0, false));
-        pieces.add(new CarPiece("车", 0, 8, false));
-        pieces.add(new MaPiece("马", 0, 1, false));
-        pieces.add(new MaPiece("马", 0, 7, false));
-        pieces.add(new ShiPiece("士", 0, 3, false));
-        pieces.add(new ShiPiece("士", 0, 5, false));
-        pieces.add(new XiangPiece("象", 0, 2, false));
-        pieces.add(new XiangPiece("象", 0, 6, false));
-        pieces.add(new PaoPiece("炮", 2, 1, false));
-        pieces.add(new PaoPiece("炮", 2, 7, false));
+        addPiece(new GeneralPiece(0, 4, false));
+        addPiece(new SoldierPiece(3, 0, false));
+        addPiece(new SoldierPiece(3, 2, false));
+        addPiece(new SoldierPiece(3, 4, false));
+        addPiece(new SoldierPiece(3, 6, false));
+        addPiece(new SoldierPiece(3, 8, false));
+        addPiece(new CarPiece(0, 0, false));
+        addPiece(new CarPiece(0, 8, false));
+        addPiece(new MaPiece(0, 1, false));
+        addPiece(new MaPiece(0, 7, false));
+        addPiece(new ShiPiece(0, 3, false));
+        addPiece(new ShiPiece(0, 5, false));
+        addPiece(new XiangPiece(0, 2, false));
+        addPiece(new XiangPiece(0, 6, false));
+        addPiece(new PaoPiece(2, 1, false));
+        addPiece(new PaoPiece(2, 7, false));
 
 
         // 红方棋子
-        pieces.add(new GeneralPiece("帅", 9, 4, true));
-        pieces.add(new SoldierPiece("兵", 6, 0, true));
-        pieces.add(new SoldierPiece("兵", 6, 2, true));
-        pieces.add(new SoldierPiece("兵", 6, 4, true));
-        pieces.add(new SoldierPiece("兵", 6, 6, true));
-        pieces.add(new SoldierPiece("兵", 6, 8, true));
-        pieces.add(new CarPiece("车", 9, 0, true));
-        pieces.add(new CarPiece("车", 9, 8, true));
-        pieces.add(new MaPiece("马", 9, 1, true));
-        pieces.add(new MaPiece("马", 9, 7, true));
-        pieces.add(new ShiPiece("仕", 9, 3, true));
-        pieces.add(new ShiPiece("仕", 9, 5, true));
-        pieces.add(new XiangPiece("相", 9, 2, true));
-        pieces.add(new XiangPiece("相", 9, 6, true));
-        pieces.add(new PaoPiece("炮", 7, 1, true));
-        pieces.add(new PaoPiece("炮", 7, 7, true));
+        addPiece(new GeneralPiece(9, 4, true));
+        addPiece(new SoldierPiece(6, 0, true));
+        addPiece(new SoldierPiece(6, 2, true));
+        addPiece(new SoldierPiece(6, 4, true));
+        addPiece(new SoldierPiece(6, 6, true));
+        addPiece(new SoldierPiece(6, 8, true));
+        addPiece(new CarPiece(9, 0, true));
+        addPiece(new CarPiece(9, 8, true));
+        addPiece(new MaPiece(9, 1, true));
+        addPiece(new MaPiece(9, 7, true));
+        addPiece(new ShiPiece(9, 3, true));
+        addPiece(new ShiPiece(9, 5, true));
+        addPiece(new XiangPiece(9, 2, true));
+        addPiece(new XiangPiece(9, 6, true));
+        addPiece(new PaoPiece(7, 1, true));
+        addPiece(new PaoPiece(7, 7, true));
 
 
     }
@@ -61,12 +74,21 @@ public class ChessBoardModel {
     }
 
     public AbstractPiece getPieceAt(int row, int col) {
-        for (AbstractPiece piece : pieces) {
-            if (piece.getRow() == row && piece.getCol() == col) {
-                return piece;
-            }
+        if (!isValidPosition(row, col)) {
+            return null;
         }
-        return null;
+        return board[row * COLS + col];
+    }
+
+    /**
+     * 按格子索引 (row * COLS + col) 查找棋子
+     */
+    public AbstractPiece getPieceAt(int square) {
+        return board[square];
+    }
+
+    public static int toSquare(int row, int col) {
+        return row * COLS + col;
     }
 
     public boolean isValidPosition(int row, int col) {
@@ -82,17 +104,30 @@ public class ChessBoardModel {
     
         if (targetPiece != null) {
             if (targetPiece.isRed() != piece.isRed()) {
-                pieces.remove(targetPiece);  // 这个 remove 是线程安全的
+                removePiece(targetPiece);
             }
         }
 
+        int oldIndex = piece.getRow() * COLS + piece.getCol();
+        if (board[oldIndex] == piece) {
+            board[oldIndex] = null;
+        }
         piece.moveTo(newRow, newCol);
+        board[newRow * COLS + newCol] = piece;
+        int code = piece.getCode();
+        long[] keys = Zobrist.PIECE_KEYS[code];
+        zobristKey ^= keys[oldIndex] ^ keys[newRow * COLS + newCol];
+        int[][] table = EvaluationTables.POSITION_VALUES[code];
+        position[piece.isRed() ? 0 : 1] += table[newRow][newCol] - table[oldIndex / COLS][oldIndex % COLS];
+        if (piece.getType() == PieceType.GENERAL) {
+            updateGeneralSquare(piece, newRow * COLS + newCol);
+        }
         return true;
     }
 
     public ChessBoardModel deepClone() {
         ChessBoardModel newModel = new ChessBoardModel();
-        newModel.getPieces().clear(); // 清空初始化时的默认棋子
+        newModel.clear(); // 清空初始化时的默认棋子
         
         // 复制当前棋盘上的所有棋子
         for (AbstractPiece piece : this.pieces) {
@@ -108,48 +143,21 @@ public class ChessBoardModel {
      */
     public String getFen() {
         StringBuilder sb = new StringBuilder();
-        // 创建一个临时二维数组来映射棋盘
-        String[][] boardMap = new String[ROWS][COLS];
-        
-        for (AbstractPiece piece : pieces) {
-            String code = "";
-            // 简易映射：红方大写，黑方小写
-            if (piece.isRed()) {
-                switch (piece.getName()) {
-                    case "帅": code = "K"; break;
-                    case "车": code = "R"; break;
-                    case "马": code = "N"; break;
-                    case "炮": code = "C"; break;
-                    case "相": code = "B"; break;
-                    case "仕": code = "A"; break;
-                    case "兵": code = "P"; break;
-                }
-            } else {
-                switch (piece.getName()) {
-                    case "将": code = "k"; break;
-                    case "车": code = "r"; break;
-                    case "马": code = "n"; break;
-                    case "炮": code = "c"; break;
-                    case "象": code = "b"; break;
-                    case "士": code = "a"; break;
-                    case "卒": code = "p"; break;
-                }
-            }
-            boardMap[piece.getRow()][piece.getCol()] = code;
-        }
 
-        // 遍历生成字符串
+        // 直接遍历数组棋盘生成字符串
         for (int i = 0; i < ROWS; i++) {
             int emptyCount = 0;
             for (int j = 0; j < COLS; j++) {
-                if (boardMap[i][j] == null) {
+                AbstractPiece piece = board[i * COLS + j];
+                if (piece == null) {
                     emptyCount++;
                 } else {
                     if (emptyCount > 0) {
                         sb.append(emptyCount);
                         emptyCount = 0;
                     }
-                    sb.append(boardMap[i][j]);
+                    // 简易映射：红方大写，黑方小写
+                    sb.append(piece.getType().getFenChar(piece.isRed()));
                 }
             }
             if (emptyCount > 0) {
@@ -167,7 +175,7 @@ public class ChessBoardModel {
      * FEN 示例: "rnbakabnr/9/1c5c1/p1p1p1p1p/9/9/P1P1P1P1P/1C5C1/9/RNBAKABNR"
      */
     public void loadFen(String fen) {
-        pieces.clear(); // 1. 清空现有棋子
+        clear(); // 1. 清空现有棋子
         
         String[] rows = fen.split("/");
         if (rows.length != ROWS) {
@@ -186,12 +194,9 @@ public class ChessBoardModel {
                     // 字母代表棋子
                     // 大写=红方, 小写=黑方
                     boolean isRed = Character.isUpperCase(ch);
-                    String name = getPieceNameFromChar(ch);
-                    if (name != null) {
-                        AbstractPiece piece = createPiece(name, r, c, isRed);
-                        if (piece != null) {
-                            pieces.add(piece);
-                        }
+                    PieceType type = PieceType.fromFenChar(ch);
+                    if (type != null) {
+                        addPiece(createPiece(type, r, c, isRed));
                     }
                     c++;
                 }
@@ -199,33 +204,16 @@ public class ChessBoardModel {
         }
     }
 
-    // 字符转棋子名辅助方法
-    private String getPieceNameFromChar(char ch) {
-        char lower = Character.toLowerCase(ch);
-        switch (lower) {
-            case 'k': return Character.isUpperCase(ch) ? "帅" : "将";
-            case 'r': return "车";
-            case 'n': return "马";
-            case 'c': return "炮";
-            case 'b': return Character.isUpperCase(ch) ? "相" : "象";
-            case 'a': return Character.isUpperCase(ch) ? "仕" : "士";
-            case 'p': return Character.isUpperCase(ch) ? "兵" : "卒";
-            default: return null;
-        }
-    }
-
     // 棋子工厂方法
-    private AbstractPiece createPiece(String name, int r, int c, boolean isRed) {
-        switch (name) {
-            case "将": return new GeneralPiece("将", r, c, isRed);
-            case "帅": return new GeneralPiece("帅", r, c, isRed);
-            case "车": return new CarPiece("车", r, c, isRed);
-            case "马": return new MaPiece("马", r, c, isRed);
-            case "炮": return new PaoPiece("炮", r, c, isRed);
-            case "相": case "象": return new XiangPiece(name, r, c, isRed);
-            case "仕": case "士": return new ShiPiece(name, r, c, isRed);
-            case "兵": case "卒": return new SoldierPiece(name, r, c, isRed);
-            default: return null;
+    private AbstractPiece createPiece(PieceType type, int r, int c, boolean isRed) {
+        switch (type) {
+            case GENERAL: return new GeneralPiece(r, c, isRed);
+            case CAR: return new CarPiece(r, c, isRed);
+            case MA: return new MaPiece(r, c, isRed);
+            case PAO: return new PaoPiece(r, c, isRed);
+            case XIANG: return new XiangPiece(r, c, isRed);
+            case SHI: return new ShiPiece(r, c, isRed);
+            default: return new SoldierPiece(r, c, isRed);
         }
     }
     
@@ -234,13 +222,94 @@ public class ChessBoardModel {
      */
     public void addPiece(AbstractPiece piece) {
         pieces.add(piece);
+        board[piece.getRow() * COLS + piece.getCol()] = piece;
+        zobristKey ^= Zobrist.pieceKey(piece);
+        updateScore(piece, 1);
+        if (piece.getType() == PieceType.GENERAL) {
+            updateGeneralSquare(piece, piece.getRow() * COLS + piece.getCol());
+        }
     }
 
     /**
      * 移除一个棋子（用于AI模拟）
      */
     public void removePiece(AbstractPiece piece) {
-        pieces.remove(piece);
+        if (pieces.remove(piece)) {
+            int index = piece.getRow() * COLS + piece.getCol();
+            if (board[index] == piece) {
+                board[index] = null;
+            }
+            zobristKey ^= Zobrist.pieceKey(piece);
+            updateScore(piece, -1);
+            if (piece.getType() == PieceType.GENERAL) {
+                updateGeneralSquare(piece, -1);
+            }
+        }
+    }
+
+    private void updateScore(AbstractPiece piece, int sign) {
+        int code = piece.getCode();
+        int side = piece.isRed() ? 0 : 1;
+        material[side] += sign * EvaluationTables.BASE_VALUES[code];
+        position[side] += sign * EvaluationTables.POSITION_VALUES[code][piece.getRow()][piece.getCol()];
+        pieceCounts[code] += sign;
+    }
+
+    private void updateGeneralSquare(AbstractPiece general, int square) {
+        if (general.isRed()) {
+            redGeneralSquare = square;
+        } else {
+            blackGeneralSquare = square;
+        }
+    }
+
+    /**
+     * 棋子部分的 Zobrist 键，不含走棋方（走棋方由 GameLogicModel.getZobristKey 合入）
+     */
+    public long getZobristKey() {
+        return zobristKey;
+    }
+
+    /**
+     * 一方棋子的基础分之和
+     */
+    public int getMaterial(boolean isRed) {
+        return material[isRed ? 0 : 1];
+    }
+
+    /**
+     * 一方棋子的位置分之和
+     */
+    public int getPositionScore(boolean isRed) {
+        return position[isRed ? 0 : 1];
+    }
+
+    /**
+     * 某种棋子（按棋子编码）在棋盘上的数量
+     */
+    public int getPieceCount(int code) {
+        return pieceCounts[code];
+    }
+
+    /**
+     * 获取帅（红）或将（黑）所在的格子索引，不在棋盘上时返回 -1
+     */
+    public int getGeneralSquare(boolean isRed) {
+        return isRed ? redGeneralSquare : blackGeneralSquare;
+    }
+
+    /**
+     * 清空棋盘上的所有棋子
+     */
+    private void clear() {
+        pieces.clear();
+        Arrays.fill(board, null);
+        redGeneralSquare = -1;
+        blackGeneralSquare = -1;
+        zobristKey = 0L;
+        Arrays.fill(material, 0);
+        Arrays.fill(position, 0);
+        Arrays.fill(pieceCounts, 0);
     }
 
     public static int getRows() {
@@ -0,0 +1,49 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * AI 难度：决定每步棋的思考时间以及搜索时启用哪些剪枝
+ */
+public enum Difficulty {
+    EASY("简单", 500, false, false),
+    NORMAL("普通", 2000, true, true),
+    HARD("困难", 5000, true, true);
+
+    private final String displayName;
+    private final long thinkTimeMs;
+    private final boolean nullMovePruning;
+    private final boolean lateMoveReductions;
+
+    Difficulty(String displayName, long thinkTimeMs, boolean nullMovePruning, boolean lateMoveReductions) {
+        this.displayName = displayName;
+        this.thinkTimeMs = thinkTimeMs;
+        this.nullMovePruning = nullMovePruning;
+        this.lateMoveReductions = lateMoveReductions;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 每步棋的思考时间（毫秒）
+     */
+    public long getThinkTimeMs() {
+        return thinkTimeMs;
+    }
+
+    public boolean isNullMovePruning() {
+        return nullMovePruning;
+    }
+
+    public boolean isLateMoveReductions() {
+        return lateMoveReductions;
+    }
+
+    /**
+     * 按本难度设置搜索器的剪枝开关
+     */
+    public void configure(Searcher searcher) {
+        searcher.setNullMovePruning(nullMovePruning);
+        searcher.setLateMoveReductions(lateMoveReductions);
+    }
+}
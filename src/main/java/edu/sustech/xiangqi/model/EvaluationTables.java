@@ -217,4 +217,16 @@ public class EvaluationTables {
             {0, 0, 0, 0, 0, 0, 0, 0, 0},
             {0, 0, 0, 0, 0, 0, 0, 0, 0}
     };
+
+    // 按棋子编码 (AbstractPiece.getCode) 索引的基础分，红方 0~6，黑方 7~13
+    public static final int[] BASE_VALUES = {
+            GENERAL_VALUE, SHI_VALUE, XIANG_VALUE, MA_VALUE, CAR_VALUE, PAO_VALUE, SOLDIER_VALUE,
+            GENERAL_VALUE, SHI_VALUE, XIANG_VALUE, MA_VALUE, CAR_VALUE, PAO_VALUE, SOLDIER_VALUE
+    };
+
+    // 按棋子编码索引的位置分表
+    public static final int[][][] POSITION_VALUES = {
+            R_GENERAL, R_SHI, R_XIANG, R_MA, R_CAR, R_PAO, R_SOLDIER,
+            B_GENERAL, B_SHI, B_XIANG, B_MA, B_CAR, B_PAO, B_SOLDIER
+    };
 }
\ No newline at end of file
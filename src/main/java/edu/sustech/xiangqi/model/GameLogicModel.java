@@ -11,7 +11,15 @@ public class GameLogicModel {
     private ChessBoardModel model;
     private GameState gameState;
     private final Stack<Move> moveHistory;
-    private final List<String> fenHistory = new ArrayList<>();
+    // 对局的重复局面记录（局面键、每着是否将军/捉子），用于长将、长捉裁决
+    private RepetitionAdjudicator adjudicator;
+    // 搜索走子时被吃掉的棋子栈：makeMove 压入，unmakeMove 弹出
+    private final AbstractPiece[] capturedStack = new AbstractPiece[256];
+    private int capturedTop = 0;
+    // 界面逐格判断合法走法时共用一个生成器，同一局面、同一走子方只扫描一次
+    private final LegalMoveGenerator legality;
+    private long legalityKey;
+    private boolean legalityReady;
 
     public enum GameState {
         PLAYING,
@@ -25,13 +33,14 @@ public class GameLogicModel {
         this.selectedPiece = null;
         this.model = model;
         this.moveHistory = new Stack<>();
+        this.legality = new LegalMoveGenerator(this);
         initGame();
     }
 
     private void initGame() {
         this.gameState = GameState.PLAYING;
         this.moveHistory.clear();
-        this.fenHistory.add(model.getFen());
+        this.adjudicator = new RepetitionAdjudicator(getZobristKey());
     }
 
     public boolean selectPiece(int row, int col) {
@@ -52,72 +61,25 @@ public class GameLogicModel {
             if (selectedPiece == null) {
                 return false;
             }
-            // 1. 基础移动规则检查
-            if (!selectedPiece.canMoveTo(targetRow, targetCol, model)) {
-                return false;
-            }
-            
-            // 2. 模拟移动，检查是否会导致自己被将军（“送将”）
-            int originalRow = selectedPiece.getRow();
-            int originalCol = selectedPiece.getCol();
-            AbstractPiece capturedPiece = model.getPieceAt(targetRow, targetCol);
-            boolean willBeInCheck;
-            boolean willFaceGenerals;
-
-
-            if (capturedPiece != null) {
-                model.removePiece(capturedPiece); 
-            }
-            selectedPiece.moveTo(targetRow, targetCol); 
-            
-            //  检查在模拟移动后，自己是否被将军
-            willBeInCheck = isChecked(selectedPiece.isRed()); 
-            // 是否会导致将帅碰面
-            willFaceGenerals = isGeneralFacing(); 
-
-            // 恢复棋盘
-            selectedPiece.moveTo(originalRow, originalCol); 
-            if (capturedPiece != null) {
-                model.addPiece(capturedPiece); 
-            }
-
-
-            //  如果模拟移动会导致自己被将军，则此移动非法
-            if (willBeInCheck) {
-                System.out.println("非法移动：不能送将！");
-                return false;
-            }
-            
-            // 如果模拟移动会导致将帅碰面，则此移动非法
-            if (willFaceGenerals) {
-                System.out.println("非法移动：不能让将帅碰面！");
+            AbstractPiece pieceToCapture = model.getPieceAt(targetRow, targetCol);
+            // 合法性检查、违规检查和悔棋历史共用同一个 Move
+            Move move = new Move(selectedPiece, selectedPiece.getRow(), selectedPiece.getCol(), targetRow, targetCol, pieceToCapture);
+            // 1. 走子规则、送将和将帅碰面由 LegalMoveGenerator 直接判定，不必试走再撤销
+            if (!isMoveLegal(move)) {
                 return false;
             }
-
-            AbstractPiece pieceToMove = selectedPiece;//记录移动
-            int fromRow = pieceToMove.getRow();
-            int fromCol = pieceToMove.getCol();
-            AbstractPiece pieceToCapture = model.getPieceAt(targetRow, targetCol);
-            Move move = new Move(pieceToMove, fromRow, fromCol, targetRow, targetCol, pieceToCapture);
-
-            AbstractPiece targetP = model.getPieceAt(targetRow, targetCol);
-            Move tempMove = new Move(selectedPiece, selectedPiece.getRow(), selectedPiece.getCol(), targetRow, targetCol, targetP);
-            
-            if (isProhibitedMove(tempMove)) {
-                // 如果是玩家走，可以弹窗提示，这里简单 print
-                System.out.println("禁止走棋：长将或重复局面！");
+            if (isProhibitedMove(move)) {
+                // 长将、长捉违规的走法和其他非法走法一样，按走子失败返回
                 return false;
             }
-            // 3. 如果所有检查都通过，执行真正的移动
+            // 2. 如果所有检查都通过，执行真正的移动
             boolean moved = model.movePiece(selectedPiece, targetRow, targetCol);
             if (moved) {
-                if (pieceToCapture != null) {
-                    fenHistory.clear();
-                }
                 moveHistory.push(move);
                 selectedPiece = null;
-                fenHistory.add(model.getFen());
                 changeTurn();
+                adjudicator.push(getZobristKey(), pieceToCapture != null, isChecked(redTurn),
+                        RepetitionAdjudicator.isChase(model, ChessBoardModel.toSquare(targetRow, targetCol)));
                 checkAndUpdateGameState();
             }
             return moved;
@@ -133,7 +95,7 @@ public class GameLogicModel {
         int currentCol = movedPiece.getCol();
         AbstractPiece eatPiece = lastMove.getEatPiece();
         
-        movedPiece.moveTo(lastMove.getFromRow(), lastMove.getFromCol());
+        model.movePiece(movedPiece, lastMove.getFromRow(), lastMove.getFromCol());
         if (eatPiece != null) {//如果有子被吃就恢复
             model.addPiece(eatPiece); //
         }
@@ -142,8 +104,8 @@ public class GameLogicModel {
 
         gameState = GameState.PLAYING;
         selectedPiece = null;
-        if (!fenHistory.isEmpty()) {
-            fenHistory.remove(fenHistory.size() - 1);
+        if (adjudicator.size() > 1) {
+            adjudicator.pop();
         }
         return true;
     }
@@ -152,16 +114,13 @@ public class GameLogicModel {
         AbstractPiece piece = model.getPieceAt(move.getFromRow(), move.getFromCol());
         AbstractPiece target = model.getPieceAt(move.getToRow(), move.getToCol());
         
-        if (target != null) {
-            fenHistory.clear();
-        }
         // 1. 直接吃子 (如果目标位置有子)
         if (target != null) {
             model.removePiece(target);
         }
         
         // 2. 直接移动
-        piece.moveTo(move.getToRow(), move.getToCol());
+        model.movePiece(piece, move.getToRow(), move.getToCol());
         
         // 3. 记录历史 (为了能悔棋/回溯)
         moveHistory.push(move);
@@ -179,7 +138,7 @@ public class GameLogicModel {
         AbstractPiece eatPiece = lastMove.getEatPiece();
         
         // 1. 移回原位
-        movedPiece.moveTo(lastMove.getFromRow(), lastMove.getFromCol());
+        model.movePiece(movedPiece, lastMove.getFromRow(), lastMove.getFromCol());
         
         // 2. 恢复被吃掉的子
         if (eatPiece != null) {
@@ -209,127 +168,123 @@ public class GameLogicModel {
     }
 
     /**
-     * 检查当前棋盘状态是否为“将帅碰面”
+     * 从己方将/帅所在格向外反查攻击者，耗时与棋盘上的棋子数量无关：
+     * 横竖线上的车和炮、以将的斜角为马腿的马、以及相邻的兵/卒
      */
-    private boolean isGeneralFacing() {
-        AbstractPiece redGeneral = null;
-        AbstractPiece blackGeneral = null;
-
-        // 找到将和帅
-        for (AbstractPiece piece : model.getPieces()) {
-            if (piece.getName().equals("帅")) {
-                redGeneral = piece;
-            } else if (piece.getName().equals("将")) {
-                blackGeneral = piece;
-            }
-            if (redGeneral != null && blackGeneral != null) {
-                break;
-            }
-        }
-
-        if (redGeneral == null || blackGeneral == null) {
+    public boolean isChecked(boolean isRed) {
+        int generalSquare = model.getGeneralSquare(isRed);
+        if (generalSquare < 0) {
             return false; // 游戏异常状态
         }
-
-        // 检查是否在同一列
-        if (redGeneral.getCol() != blackGeneral.getCol()) {
-            return false;
-        }
-
-        // 检查中间是否有棋子
-        int commonCol = redGeneral.getCol();
-        int startRow = Math.min(redGeneral.getRow(), blackGeneral.getRow()) + 1;
-        int endRow = Math.max(redGeneral.getRow(), blackGeneral.getRow());
-
-        for (int r = startRow; r < endRow; r++) {
-            if (model.getPieceAt(r, commonCol) != null) {
-                return false; // 被阻挡
+        int row = generalSquare / ChessBoardModel.getCols();
+        int col = generalSquare % ChessBoardModel.getCols();
+
+        // 1. 车、炮：沿四个方向找到第一个棋子（车）和炮架后的第一个棋子（炮）
+        for (int[] d : AbstractPiece.LINE_DIRECTIONS) {
+            int r = row + d[0];
+            int c = col + d[1];
+            while (model.isValidPosition(r, c) && model.getPieceAt(r, c) == null) {
+                r += d[0];
+                c += d[1];
             }
-        }
-
-        // 在同一列且中间无阻挡
-        return true;
-    }
-
-    public boolean isChecked(boolean isRed) {
-        int targetRow = -1, targetCol = -1;
-        for (int r = 0; r < ChessBoardModel.getRows(); r++) {
-            for (int c = 0; c < ChessBoardModel.getCols(); c++) {
-                AbstractPiece piece = model.getPieceAt(r, c);
-                if (piece != null && isRed && piece.getName().equals("帅")) {
-                    targetRow = r;
-                    targetCol = c;
-                } else if (piece != null && !isRed && piece.getName().equals("将")) {
-                    targetRow = r;
-                    targetCol = c;
-                }
+            if (!model.isValidPosition(r, c)) {
+                continue;
             }
-        }
-        for (int r = 0; r < ChessBoardModel.getRows(); r++) {
-            for (int c = 0; c < ChessBoardModel.getCols(); c++) {
-                AbstractPiece piece = model.getPieceAt(r, c);
-                if (piece != null && piece.isRed() != isRed) {
-                    if (piece.canMoveTo(targetRow, targetCol, model)) {
-                        return true;
-                    }
+            AbstractPiece first = model.getPieceAt(r, c);
+            if (first.isRed() != isRed && first.getType() == PieceType.CAR) {
+                return true;
+            }
+            r += d[0];
+            c += d[1];
+            while (model.isValidPosition(r, c) && model.getPieceAt(r, c) == null) {
+                r += d[0];
+                c += d[1];
+            }
+            if (model.isValidPosition(r, c)) {
+                AbstractPiece second = model.getPieceAt(r, c);
+                if (second.isRed() != isRed && second.getType() == PieceType.PAO) {
+                    return true;
                 }
             }
         }
-        return false;
-
-    }
 
-    public boolean hasAnyLegalMove(boolean isRed) {
-        List<AbstractPiece> piecesCopy = new ArrayList<>(model.getPieces());
-        // 1. 获取该方的所有棋子
-        for (AbstractPiece piece : piecesCopy) {
-            if (piece.isRed() == isRed) {
-                // 2. 为该棋子尝试移动到棋盘上的所有位置
-                for (int r = 0; r < ChessBoardModel.getRows(); r++) {
-                    for (int c = 0; c < ChessBoardModel.getCols(); c++) {
-                        // 3. 检查移动是否“真正合法”
-                        if (isMoveLegal(piece, r, c)) {
-                            return true; 
-                        }
-                    }
+        // 2. 马：将的斜角就是来袭马的马腿，马腿空着时检查对应的两个"日"字位置
+        for (int dr = -1; dr <= 1; dr += 2) {
+            for (int dc = -1; dc <= 1; dc += 2) {
+                if (!model.isValidPosition(row + dr, col + dc) || model.getPieceAt(row + dr, col + dc) != null) {
+                    continue;
+                }
+                if (isEnemyMa(model.getPieceAt(row + 2 * dr, col + dc), isRed)
+                        || isEnemyMa(model.getPieceAt(row + dr, col + 2 * dc), isRed)) {
+                    return true;
                 }
             }
         }
-        // 遍历完所有棋子和所有位置，都没找到合法移动
-        return false;
 
+        // 3. 兵/卒：对方兵从将的正前方或左右两侧吃过来
+        int forward = isRed ? -1 : 1;
+        return isEnemySoldierAttacking(model.getPieceAt(row + forward, col), isRed, row, col)
+                || isEnemySoldierAttacking(model.getPieceAt(row, col - 1), isRed, row, col)
+                || isEnemySoldierAttacking(model.getPieceAt(row, col + 1), isRed, row, col);
     }
 
-    public boolean isMoveLegal(AbstractPiece piece, int targetRow, int targetCol) {
-        if (!piece.canMoveTo(targetRow, targetCol, model)) {
-            return false;
-        }
-
-        int originalRow = piece.getRow();
-        int originalCol = piece.getCol();
-        AbstractPiece capturedPiece = model.getPieceAt(targetRow, targetCol);
-
-        boolean inCheck;
-        boolean facing;
+    private boolean isEnemyMa(AbstractPiece piece, boolean isRed) {
+        return piece != null && piece.getType() == PieceType.MA && piece.isRed() != isRed;
+    }
 
+    private boolean isEnemySoldierAttacking(AbstractPiece piece, boolean isRed, int row, int col) {
+        return piece != null && piece.getType() == PieceType.SOLDIER && piece.isRed() != isRed
+                && piece.canMoveTo(row, col, model);
+    }
 
-        if (capturedPiece != null) {
-            model.removePiece(capturedPiece);
+    /**
+     * isRed 一方是否还有合法走法：用分阶段的 MovePicker 逐个取合法走法，拿到第一个就停止，
+     * 先吃子后普通走法，多数局面不必生成全部走法
+     */
+    public boolean hasAnyLegalMove(boolean isRed) {
+        boolean switched = isRed != redTurn;
+        if (switched) {
+            changeTurn();
+        }
+        MovePicker picker = new MovePicker(this, null);
+        picker.reset(0, 0, false);
+        boolean found = picker.next() != 0;
+        if (switched) {
+            changeTurn();
         }
-        piece.moveTo(targetRow, targetCol);
+        return found;
+    }
 
-        // 检查自己是否被将军
-        inCheck = isChecked(piece.isRed());
-        facing = isGeneralFacing();
+    public boolean isMoveLegal(AbstractPiece piece, int targetRow, int targetCol) {
+        return isMoveLegal(new Move(piece, piece.getRow(), piece.getCol(), targetRow, targetCol,
+                model.getPieceAt(targetRow, targetCol)));
+    }
 
-        // 恢复棋盘
-        piece.moveTo(originalRow, originalCol);
-        if (capturedPiece != null) {
-            model.addPiece(capturedPiece);
+    /**
+     * 同 isMoveLegal(piece, targetRow, targetCol)，move 必须是在当前局面上构造的
+     */
+    public boolean isMoveLegal(Move move) {
+        AbstractPiece piece = move.getMovedPiece();
+        if (!piece.canMoveTo(move.getToRow(), move.getToCol(), model)) {
+            return false;
         }
+        AbstractPiece captured = move.getEatPiece();
+        int encoded = Move.encode(ChessBoardModel.toSquare(move.getFromRow(), move.getFromCol()),
+                ChessBoardModel.toSquare(move.getToRow(), move.getToCol()), piece.getCode(), captured == null ? -1 : captured.getCode());
+        return legalityFor(piece.isRed()).isLegal(encoded);
+    }
 
-        // 如果移动后不会被将军，则移动合法
-        return !inCheck && !facing;
+    /**
+     * 返回已为 isRed 一方扫描过当前局面的生成器，局面键（含走子方）没变时直接复用上次的扫描结果
+     */
+    private LegalMoveGenerator legalityFor(boolean isRed) {
+        long key = isRed ? model.getZobristKey() : model.getZobristKey() ^ Zobrist.SIDE_KEY;
+        if (!legalityReady || key != legalityKey) {
+            legality.setup(isRed);
+            legalityKey = key;
+            legalityReady = true;
+        }
+        return legality;
     }
 
     public Move getLastMove() {
@@ -362,8 +317,8 @@ public class GameLogicModel {
     public void restart() {
         // 重新初始化棋盘和游戏逻辑
         model.initializePieces(); // 假设 ChessBoardModel 有此方法来重置棋子
-        initGame();
         this.redTurn = true;
+        initGame();
         this.selectedPiece = null;
     }
 
@@ -371,131 +326,150 @@ public class GameLogicModel {
      * AI调用：获取当前回合方所有合法的走法
      */
     public List<Move> getAllLegalMoves(boolean isRedPlayer) {
-        List<Move> legalMoves = new ArrayList<>();
-        List<AbstractPiece> piecesCopy = new ArrayList<>(model.getPieces());
-
-        for (AbstractPiece piece : piecesCopy) {
-            if (piece.isRed() == isRedPlayer) {
-                for (int r = 0; r < ChessBoardModel.getRows(); r++) {
-                    for (int c = 0; c < ChessBoardModel.getCols(); c++) {
-                        // 使用 isMoveLegal 检查
-                        if (isMoveLegal(piece, r, c)) {
-                            legalMoves.add(new Move(
-                                    piece,
-                                    piece.getRow(),
-                                    piece.getCol(),
-                                    r,
-                                    c,
-                                    model.getPieceAt(r, c)
-                            ));
-                        }
+        boolean switched = isRedPlayer != redTurn;
+        if (switched) {
+            changeTurn();
+        }
+        int[] moves = new int[128];
+        int count = generateLegalMoves(moves);
+        if (switched) {
+            changeTurn();
+        }
+        List<Move> legalMoves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            legalMoves.add(toMove(moves[i]));
+        }
+        return legalMoves;
+    }
+
+    /**
+     * AI调用：生成当前回合方的全部合法走法（整数编码），牵制和应将由 LegalMoveGenerator 一次算好，不逐个试走
+     * @return 走法数量
+     */
+    public int generateLegalMoves(int[] moves) {
+        return legalityFor(redTurn).generate(moves);
+    }
+
+    /**
+     * AI调用：生成当前回合方的所有伪合法走法（整数编码，见 Move.encode），不检查送将
+     * @return 走法数量
+     */
+    public int generateMoves(int[] moves) {
+        return generateMoves(moves, true, true);
+    }
+
+    /**
+     * AI调用：只生成当前回合方的吃子走法（静态搜索用）
+     * @return 走法数量
+     */
+    public int generateCaptures(int[] moves) {
+        return generateMoves(moves, true, false);
+    }
+
+    /**
+     * AI调用：只生成当前回合方的非吃子走法（分阶段取走法时在吃子之后生成）
+     * @return 走法数量
+     */
+    public int generateQuiets(int[] moves) {
+        return generateMoves(moves, false, true);
+    }
+
+    /**
+     * AI调用：整数走法在当前局面是否伪合法（走子方、走的子、被吃的子都与棋盘一致，且符合棋子的走子规则），不检查送将
+     * 用于验证来自其他局面的走法，例如置换表走法和杀手走法
+     */
+    public boolean isPseudoLegal(int move) {
+        AbstractPiece piece = model.getPieceAt(Move.from(move));
+        if (piece == null || piece.getCode() != Move.piece(move) || piece.isRed() != redTurn) {
+            return false;
+        }
+        int to = Move.to(move);
+        AbstractPiece captured = model.getPieceAt(to);
+        if ((captured == null ? -1 : captured.getCode()) != Move.captured(move)) {
+            return false;
+        }
+        return piece.canMoveTo(to / ChessBoardModel.getCols(), to % ChessBoardModel.getCols(), model);
+    }
+
+    private int generateMoves(int[] moves, boolean captures, boolean quiets) {
+        List<AbstractPiece> pieces = model.getPieces();
+        int count = 0;
+        for (int i = 0; i < pieces.size(); i++) {
+            AbstractPiece piece = pieces.get(i);
+            if (piece.isRed() != redTurn) {
+                continue;
+            }
+            // 先把目标格追加到 moves 末尾，再原地编码成整数走法
+            int from = ChessBoardModel.toSquare(piece.getRow(), piece.getCol());
+            int end = piece.generateMoves(model, moves, count);
+            for (int j = count; j < end; j++) {
+                AbstractPiece captured = model.getPieceAt(moves[j]);
+                if (captured != null) {
+                    if (captures) {
+                        moves[count++] = Move.encode(from, moves[j], piece.getCode(), captured.getCode());
                     }
+                } else if (quiets) {
+                    moves[count++] = Move.encode(from, moves[j], piece.getCode(), -1);
                 }
             }
         }
-        return legalMoves;
+        return count;
     }
 
     /**
-     * AI调用：评估当前棋盘分数 (使用子力位置表)
-     * 正数代表红方优势，负数代表黑方优势
+     * AI调用：执行整数走法并切换回合，不记录悔棋历史，必须与 unmakeMove 成对调用
      */
-    public int evaluateBoard() {
-        int totalScore = 0;
-        List<AbstractPiece> piecesCopy;
-        synchronized (model) {
-            piecesCopy = new ArrayList<>(model.getPieces());
+    public void makeMove(int move) {
+        int to = Move.to(move);
+        AbstractPiece piece = model.getPieceAt(Move.from(move));
+        AbstractPiece captured = model.getPieceAt(to);
+        if (captured != null) {
+            model.removePiece(captured);
         }
-        
-        for (AbstractPiece piece : piecesCopy) {
-            int value = getPieceValue(piece);
-            totalScore += (piece.isRed() ? value : -value);
-        }
-        return totalScore;
+        capturedStack[capturedTop++] = captured;
+        model.movePiece(piece, to / ChessBoardModel.getCols(), to % ChessBoardModel.getCols());
+        changeTurn();
     }
 
     /**
-     * AI调用：获取单个棋子的价值 (基础分 + 位置分)
+     * AI调用：撤销最近一次 makeMove
      */
-    private int getPieceValue(AbstractPiece piece) {
-        if (piece == null) return 0;
-
-        int row = piece.getRow();
-        int col = piece.getCol();
-        int baseValue = 0;
-        int posValue = 0;
-
-        if (piece.isRed()) {
-            // --- 红方 ---
-            switch (piece.getName()) {
-                case "帅": // r_j
-                    baseValue = EvaluationTables.GENERAL_VALUE;
-                    posValue = EvaluationTables.R_GENERAL[row][col];
-                    break;
-                case "车": // r_c
-                    baseValue = EvaluationTables.CAR_VALUE;
-                    posValue = EvaluationTables.R_CAR[row][col];
-                    break;
-                case "炮": // r_p
-                    baseValue = EvaluationTables.PAO_VALUE;
-                    posValue = EvaluationTables.R_PAO[row][col];
-                    break;
-                case "马": // r_m
-                    baseValue = EvaluationTables.MA_VALUE;
-                    posValue = EvaluationTables.R_MA[row][col];
-                    break;
-                case "相": // r_x
-                    baseValue = EvaluationTables.XIANG_VALUE;
-                    posValue = EvaluationTables.R_XIANG[row][col];
-                    break;
-                case "仕": // r_s
-                    baseValue = EvaluationTables.SHI_VALUE;
-                    posValue = EvaluationTables.R_SHI[row][col];
-                    break;
-                case "兵": // r_z
-                    baseValue = EvaluationTables.SOLDIER_VALUE;
-                    posValue = EvaluationTables.R_SOLDIER[row][col];
-                    break;
-            }
-        } else {
-            // --- 黑方 ---
-            switch (piece.getName()) {
-                case "将": // b_j
-                    baseValue = EvaluationTables.GENERAL_VALUE;
-                    posValue = EvaluationTables.B_GENERAL[row][col];
-                    break;
-                case "车": // b_c
-                    baseValue = EvaluationTables.CAR_VALUE;
-                    posValue = EvaluationTables.B_CAR[row][col];
-                    break;
-                case "炮": // b_p
-                    baseValue = EvaluationTables.PAO_VALUE;
-                    posValue = EvaluationTables.B_PAO[row][col];
-                    break;
-                case "马": // b_m
-                    baseValue = EvaluationTables.MA_VALUE;
-                    posValue = EvaluationTables.B_MA[row][col];
-                    break;
-                case "象": // b_x
-                    baseValue = EvaluationTables.XIANG_VALUE;
-                    posValue = EvaluationTables.B_XIANG[row][col];
-                    break;
-                case "士": // b_s
-                    baseValue = EvaluationTables.SHI_VALUE;
-                    posValue = EvaluationTables.B_SHI[row][col];
-                    break;
-                case "卒": // b_z
-                    baseValue = EvaluationTables.SOLDIER_VALUE;
-                    posValue = EvaluationTables.B_SOLDIER[row][col];
-                    break;
-            }
+    public void unmakeMove(int move) {
+        int from = Move.from(move);
+        AbstractPiece piece = model.getPieceAt(Move.to(move));
+        model.movePiece(piece, from / ChessBoardModel.getCols(), from % ChessBoardModel.getCols());
+        AbstractPiece captured = capturedStack[--capturedTop];
+        capturedStack[capturedTop] = null;
+        if (captured != null) {
+            model.addPiece(captured);
         }
-        
-        // 估值 = 基础分 + 位置分
-        return baseValue + posValue;
+        changeTurn();
+    }
+
+    /**
+     * 把整数走法转换成 Move 对象（供界面和 isProhibitedMove 使用）
+     */
+    public Move toMove(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int cols = ChessBoardModel.getCols();
+        return new Move(model.getPieceAt(from), from / cols, from % cols, to / cols, to % cols, model.getPieceAt(to));
     }
 
-    // 检测走法是否违规（长将/长捉/重复）
+    /**
+     * AI调用：评估当前棋盘分数 (使用子力位置表)
+     * 正数代表红方优势，负数代表黑方优势
+     */
+    public int evaluateBoard() {
+        // 子力分和位置分由 ChessBoardModel 随走子增量维护，这里只需读取
+        return model.getMaterial(true) + model.getPositionScore(true)
+                - model.getMaterial(false) - model.getPositionScore(false);
+    }
+
+    /**
+     * 检测走法是否违规：走完后构成第三次重复，并且按长将、长捉规则由走这一步的一方负责
+     * 双方都不违规的循环（闲着、双方长将等）是允许的
+     */
     public boolean isProhibitedMove(Move move) {
         AbstractPiece piece = move.getMovedPiece();
         int targetRow = move.getToRow();
@@ -505,49 +479,26 @@ public class GameLogicModel {
         int originalRow = piece.getRow();
         int originalCol = piece.getCol();
         AbstractPiece capturedPiece = model.getPieceAt(targetRow, targetCol);
-        
-        String resultingFen = "";
-        
         if (capturedPiece != null) {
-            model.removePiece(capturedPiece);
-        }
-        piece.moveTo(targetRow, targetCol);
-        
-        // 生成移动后的 FEN
-        resultingFen = model.getFen();
-        
-        // 检查该局面在历史上出现的次数
-        int appearanceCount = 0;
-        for (String fen : fenHistory) {
-            if (fen.equals(resultingFen)) {
-                appearanceCount++;
-            }
+            // 吃子不可逆，不会构成循环
+            return false;
         }
+        model.movePiece(piece, targetRow, targetCol);
         
-        // 判断逻辑：
-        // 如果该局面已经出现过 2 次（加上这次就是第 3 次），则构成重复局面
-        boolean isRepetitive = (appearanceCount >= 2);
+        // 移动后的局面键（轮到对方走棋）
+        long resultingKey = model.getZobristKey() ^ (piece.isRed() ? Zobrist.SIDE_KEY : 0L);
+        adjudicator.push(resultingKey, false);
         boolean isForbidden = false;
-
-        if (isRepetitive) {
-            // 区分“长将”还是“普通重复”
-            boolean checksOpponent = isChecked(!piece.isRed());
-            
-            if (checksOpponent) {
-                System.out.println("【禁止】长将判负！");
-                isForbidden = true;
-            } else {
-                System.out.println("【禁止】重复局面（长捉/闲着）！");
-                isForbidden = true; 
-            }
+        // 该局面已经出现过 2 次（加上这次就是第 3 次）才裁决
+        if (adjudicator.repetitionCount() >= 2) {
+            adjudicator.attribute(isChecked(!piece.isRed()),
+                    RepetitionAdjudicator.isChase(model, ChessBoardModel.toSquare(targetRow, targetCol)));
+            isForbidden = adjudicator.adjudicate() == RepetitionAdjudicator.Verdict.MOVER_LOSES;
         }
+        adjudicator.pop();
 
         // 恢复棋盘
-        piece.moveTo(originalRow, originalCol);
-        if (capturedPiece != null) {
-            model.addPiece(capturedPiece);
-        }
-        
+        model.movePiece(piece, originalRow, originalCol);
         return isForbidden;
     }
 
@@ -558,22 +509,40 @@ public class GameLogicModel {
         // 2. 重置游戏状态
         this.gameState = GameState.PLAYING;
         this.moveHistory.clear();
-        this.fenHistory.clear(); // 清空之前的历史
         
         // 3. 强制设置为红方（玩家）先行
         this.redTurn = true; 
         
-        // 4. 记录初始局面 (防止AI第一步就误判长将)
-        fenHistory.add(model.getFen());
+        // 4. 清空之前的历史，从残局的初始局面重新记录 (防止AI第一步就误判长将)
+        this.adjudicator = new RepetitionAdjudicator(getZobristKey());
+    }
+
+    /**
+     * 复制出一个独立的沙盒（棋盘、走棋方和重复局面历史），供 AI 搜索使用
+     */
+    public GameLogicModel createSandbox() {
+        GameLogicModel sandbox = new GameLogicModel(model.deepClone());
+        sandbox.setRedTurn(redTurn);
+        sandbox.setAdjudicator(adjudicator.copy());
+        return sandbox;
     }
 
-    public List<String> getFenHistory() {
-        return fenHistory;
+    /**
+     * 当前局面的 Zobrist 键（棋子 + 走棋方）
+     */
+    public long getZobristKey() {
+        return redTurn ? model.getZobristKey() : model.getZobristKey() ^ Zobrist.SIDE_KEY;
+    }
+
+    /**
+     * 对局的重复局面记录，搜索前用 copy 复制一份，不要直接修改
+     */
+    public RepetitionAdjudicator getAdjudicator() {
+        return adjudicator;
     }
 
-    public void setFenHistory(List<String> history) {
-        this.fenHistory.clear();
-        this.fenHistory.addAll(history);
+    public void setAdjudicator(RepetitionAdjudicator adjudicator) {
+        this.adjudicator = adjudicator;
     }
 
     public ChessBoardModel getModel() { 
@@ -5,13 +5,13 @@ package edu.sustech.xiangqi.model;
  */
 public class GeneralPiece extends AbstractPiece {
 
-    public GeneralPiece(String name, int row, int col, boolean isRed) {
-        super(name, row, col, isRed);
+    public GeneralPiece(int row, int col, boolean isRed) {
+        super(PieceType.GENERAL, row, col, isRed);
     }
 
     @Override
     public AbstractPiece copy() {
-        return new GeneralPiece(this.getName(), this.getRow(), this.getCol(), this.isRed());
+        return new GeneralPiece(this.getRow(), this.getCol(), this.isRed());
     }
 
     @Override
@@ -37,20 +37,12 @@ public class GeneralPiece extends AbstractPiece {
                 if (targetRow > 2 || targetCol < 3 || targetCol > 5) return false;
             }
         }
-        int row = -1;
-        int col = -1;//找到对面将/帅的位置
-        for (int r = 0; r < ChessBoardModel.getRows(); r++) {
-            for (int c = 0; c < ChessBoardModel.getCols(); c++) {
-                AbstractPiece piece = model.getPieceAt(r, c);
-                if (piece != null && isRed() && piece.getName().equals("将")) {
-                    row = r;
-                    col = c;
-                } else if (piece != null && !isRed() && piece.getName().equals("帅")) {
-                    row = r;
-                    col = c;
-                }
-            }
+        int enemySquare = model.getGeneralSquare(!isRed()); //对面将/帅的位置
+        if (enemySquare < 0) {
+            return true;
         }
+        int row = enemySquare / ChessBoardModel.getCols();
+        int col = enemySquare % ChessBoardModel.getCols();
         if (col == targetCol) { // 如果目标位置和对方的将在同一列
             int start = Math.min(targetRow, row) + 1;
             int end = Math.max(targetRow, row);
@@ -68,4 +60,16 @@ public class GeneralPiece extends AbstractPiece {
         
         return true; 
     }
+
+    @Override
+    public int generateMoves(ChessBoardModel model, int[] targets, int count) {
+        int color = isRed() ? 0 : 1;
+        for (int to : MoveTables.GENERAL_MOVES[color][ChessBoardModel.toSquare(getRow(), getCol())]) {
+            // 九宫内最多 4 个候选格，用 canMoveTo 一并处理"将帅不能照面"的规则
+            if (canMoveTo(to / ChessBoardModel.getCols(), to % ChessBoardModel.getCols(), model)) {
+                targets[count++] = to;
+            }
+        }
+        return count;
+    }
 }
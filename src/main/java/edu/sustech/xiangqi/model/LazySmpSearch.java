@@ -0,0 +1,126 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * Lazy SMP 并行搜索：多个线程各自在自己的沙盒上对同一个根局面做迭代加深，只共享置换表
+ * 线程之间不做任何显式分工，靠错开的起始深度、随机的根节点走法顺序和置换表里别的线程留下的结果
+ * 自然地分散到不同的子树上。主线程在调用线程里运行，结束时通知辅助线程停止
+ */
+public class LazySmpSearch implements ParallelSearch {
+    private final GameLogicModel logic;
+    private final Searcher[] searchers;
+    private int completedDepth;
+    private PrincipalVariation principalVariation;
+
+    /**
+     * @param logic 主线程使用的沙盒，辅助线程会各自复制一份
+     * @param threadCount 线程数（含主线程），小于 1 时按 1 处理
+     */
+    public LazySmpSearch(GameLogicModel logic, TranspositionTable transTable, int threadCount) {
+        this.logic = logic;
+        this.searchers = new Searcher[Math.max(1, threadCount)];
+        for (int i = 0; i < searchers.length; i++) {
+            searchers[i] = new Searcher(i == 0 ? logic : logic.createSandbox(), transTable);
+            searchers[i].setThreadIndex(i);
+        }
+    }
+
+    @Override
+    public void configure(Difficulty difficulty) {
+        for (Searcher searcher : searchers) {
+            difficulty.configure(searcher);
+        }
+    }
+
+    /**
+     * 时间和节点预算对每个线程分别生效，返回完成深度最深的线程给出的最佳走法
+     */
+    @Override
+    public Move findBestMove(int maxDepth, long timeLimitMs, long nodeLimit) {
+        Thread[] helpers = new Thread[searchers.length - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            final Searcher helper = searchers[i + 1];
+            helpers[i] = new Thread(() -> helper.findBestMove(maxDepth, timeLimitMs, nodeLimit), "LazySMP-" + (i + 1));
+            helpers[i].setDaemon(true);
+            helpers[i].start();
+        }
+
+        Move mainMove;
+        try {
+            mainMove = searchers[0].findBestMove(maxDepth, timeLimitMs, nodeLimit);
+        } finally {
+            stopHelpers(helpers);
+        }
+
+        // 取完成深度最深的结果，深度相同时以主线程为准
+        completedDepth = 0;
+        principalVariation = null;
+        for (Searcher searcher : searchers) {
+            PrincipalVariation pv = searcher.getPrincipalVariation();
+            if (pv != null && searcher.getCompletedDepth() > completedDepth) {
+                completedDepth = searcher.getCompletedDepth();
+                principalVariation = pv;
+            }
+        }
+        if (principalVariation == null) {
+            return mainMove;
+        }
+        return logic.toMove(principalVariation.getFirstMove());
+    }
+
+    @Override
+    public void stop() {
+        for (Searcher searcher : searchers) {
+            searcher.stop();
+        }
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        for (Searcher searcher : searchers) {
+            searcher.setDeadline(deadline);
+        }
+    }
+
+    private void stopHelpers(Thread[] helpers) {
+        for (int i = 1; i < searchers.length; i++) {
+            searchers[i].stop();
+        }
+        boolean interrupted = false;
+        for (Thread helper : helpers) {
+            while (true) {
+                try {
+                    helper.join();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    @Override
+    public PrincipalVariation getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @Override
+    public long getNodes() {
+        long nodes = 0;
+        for (Searcher searcher : searchers) {
+            nodes += searcher.getNodes();
+        }
+        return nodes;
+    }
+
+    public int getThreadCount() {
+        return searchers.length;
+    }
+}
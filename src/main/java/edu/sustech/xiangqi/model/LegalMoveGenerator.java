@@ -0,0 +1,384 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.Arrays;
+
+/**
+ * 合法走法判定：每个局面只从己方将/帅出发扫描一次，之后判定单个伪合法走法是否合法只需常数时间，
+ * 不再逐个走法试走、检查是否送将和将帅照面再撤销
+ * 扫描记录四条直线上离将最近的三个棋子，由此得到：
+ * 车的牵制（将与对方车之间只有一个己方子）、炮的牵制（将与对方炮之间恰有两个子，其中的己方子不能离线，
+ * 也不能把子走进将与没有炮架的炮之间）、以及对面笑（将帅之间只剩一个子时它不能离开这条线）；
+ * 斜角上的己方子挡着对方马的马腿时也不能离开。
+ * 被将军时记下能应将的格子（吃掉将军的子、挡在车炮与将之间、塞马腿），非将帅走法先按这张表筛选，只留下应将走法
+ * 每个实例保存一个局面的扫描结果，搜索中每层各用一个
+ */
+public class LegalMoveGenerator {
+    private static final int COLS = ChessBoardModel.getCols();
+    private static final int ROWS = ChessBoardModel.getRows();
+    private static final int SQUARES = ROWS * COLS;
+    private static final int RAY_PIECES = 3; // 每条线记录的棋子数：第三个子可能是隔着两个子的炮
+
+    private final GameLogicModel logic;
+    private final ChessBoardModel model;
+    private boolean red;
+    private int general; // 己方将/帅所在格，没有时为 -1（此时不做任何限制）
+    private int generalRow;
+    private int generalCol;
+    // rays[dir * RAY_PIECES + i] 是 dir 方向上离将第 i 近的棋子所在格，不足时为 -1
+    private final int[] rays = new int[4 * RAY_PIECES];
+    private final boolean[] lineChecks = new boolean[4];
+    private boolean inCheck;
+    // 应将格子表，用局面编号标记，免去每个局面清空数组
+    private final int[] evasionStamps = new int[SQUARES];
+    private int stamp;
+    private final int[] maCheckers = new int[8];
+    private final int[] maLegs = new int[8];
+    private int maCheckerCount;
+    private final int[] soldierCheckers = new int[3];
+    private int soldierCheckerCount;
+    private final int[] freeScreens = new int[4]; // 炮将军时作炮架的己方子，走离这条线即可解将
+    private int freeScreenCount;
+    // 被马牵制的马腿：legPins[i] 上的己方子挡着 legPinMas[i] 上的对方马，离开（且不是吃掉这匹马）就会被将
+    private final int[] legPins = new int[8];
+    private final int[] legPinMas = new int[8];
+    private int legPinCount;
+    // isLineAttackedAfter 里走完之后离将最近的两个子
+    private final int[] lineSquares = new int[2];
+    private int lineCount;
+
+    public LegalMoveGenerator(GameLogicModel logic) {
+        this.logic = logic;
+        this.model = logic.getModel();
+    }
+
+    /**
+     * 为 isRed 一方扫描当前局面，棋盘变化后需要重新调用
+     */
+    public void setup(boolean isRed) {
+        red = isRed;
+        general = model.getGeneralSquare(isRed);
+        inCheck = false;
+        maCheckerCount = 0;
+        soldierCheckerCount = 0;
+        freeScreenCount = 0;
+        legPinCount = 0;
+        if (general < 0) {
+            return; // 游戏异常状态
+        }
+        generalRow = general / COLS;
+        generalCol = general % COLS;
+        if (++stamp == 0) {
+            Arrays.fill(evasionStamps, 0);
+            stamp = 1;
+        }
+
+        // 1. 四条直线：记录最近的三个棋子，第一个是对方车或将、第二个是对方炮时就是将军
+        for (int dir = 0; dir < 4; dir++) {
+            int[] d = AbstractPiece.LINE_DIRECTIONS[dir];
+            int found = 0;
+            int r = generalRow + d[0];
+            int c = generalCol + d[1];
+            while (found < RAY_PIECES && r >= 0 && r < ROWS && c >= 0 && c < COLS) {
+                if (model.getPieceAt(r, c) != null) {
+                    rays[dir * RAY_PIECES + found++] = r * COLS + c;
+                }
+                r += d[0];
+                c += d[1];
+            }
+            while (found < RAY_PIECES) {
+                rays[dir * RAY_PIECES + found++] = -1;
+            }
+            int first = rays[dir * RAY_PIECES];
+            int second = rays[dir * RAY_PIECES + 1];
+            int checker = -1;
+            if (isEnemyLinePiece(first, false)) {
+                checker = first;
+            } else if (isEnemyLinePiece(second, true)) {
+                checker = second;
+                if (model.getPieceAt(first).isRed() == red) {
+                    freeScreens[freeScreenCount++] = first;
+                }
+            }
+            lineChecks[dir] = checker >= 0;
+            if (checker >= 0) {
+                inCheck = true;
+                int step = d[0] * COLS + d[1];
+                for (int square = general + step; ; square += step) {
+                    evasionStamps[square] = stamp;
+                    if (square == checker) {
+                        break;
+                    }
+                }
+            }
+        }
+
+        // 2. 马：将的斜角是来袭马的马腿，马腿空着时对应两个"日"字位置上的对方马在将军，
+        //    马腿上是己方子时它被这匹马牵制
+        for (int dr = -1; dr <= 1; dr += 2) {
+            for (int dc = -1; dc <= 1; dc += 2) {
+                if (!model.isValidPosition(generalRow + dr, generalCol + dc)) {
+                    continue;
+                }
+                int leg = general + dr * COLS + dc;
+                AbstractPiece blocker = model.getPieceAt(leg);
+                if (blocker == null) {
+                    addMaChecker(generalRow + 2 * dr, generalCol + dc, leg);
+                    addMaChecker(generalRow + dr, generalCol + 2 * dc, leg);
+                } else if (blocker.isRed() == red) {
+                    addLegPin(generalRow + 2 * dr, generalCol + dc, leg);
+                    addLegPin(generalRow + dr, generalCol + 2 * dc, leg);
+                }
+            }
+        }
+
+        // 3. 兵/卒：从将的正前方或左右两侧吃过来，只能吃掉它
+        int forward = red ? -1 : 1;
+        addSoldierChecker(generalRow + forward, generalCol);
+        addSoldierChecker(generalRow, generalCol - 1);
+        addSoldierChecker(generalRow, generalCol + 1);
+    }
+
+    /**
+     * 上次 setup 时该方是否被将军（含将帅照面）
+     */
+    public boolean isInCheck() {
+        return inCheck;
+    }
+
+    /**
+     * 伪合法走法（符合棋子走子规则、走子方与 setup 一致）走完后己方是否不被将军、不造成将帅照面
+     */
+    public boolean isLegal(int move) {
+        if (general < 0) {
+            return true;
+        }
+        int from = Move.from(move);
+        int to = Move.to(move);
+        if (from == general) {
+            return !isAttackedAfterGeneralMove(to);
+        }
+        if (inCheck && evasionStamps[to] != stamp && !isFreeScreen(from)) {
+            return false;
+        }
+        for (int i = 0; i < legPinCount; i++) {
+            if (legPins[i] == from && legPinMas[i] != to) {
+                return false;
+            }
+        }
+        int fromDir = rayOf(from);
+        int toDir = rayOf(to);
+        for (int dir = 0; dir < 4; dir++) {
+            if ((lineChecks[dir] || dir == fromDir || dir == toDir) && isLineAttackedAfter(dir, from, to)) {
+                return false;
+            }
+        }
+        if (inCheck) {
+            // 马只能被吃掉或塞住马腿，兵只能被吃掉
+            for (int i = 0; i < maCheckerCount; i++) {
+                if (to != maCheckers[i] && to != maLegs[i]) {
+                    return false;
+                }
+            }
+            for (int i = 0; i < soldierCheckerCount; i++) {
+                if (to != soldierCheckers[i]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 生成当前回合方（需与 setup 的一方相同）的全部合法走法
+     * @return 走法数量
+     */
+    public int generate(int[] moves) {
+        int count = logic.generateMoves(moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            if (isLegal(moves[i])) {
+                moves[legal++] = moves[i];
+            }
+        }
+        return legal;
+    }
+
+    private void addMaChecker(int row, int col, int leg) {
+        if (isEnemy(row, col, PieceType.MA)) {
+            int square = row * COLS + col;
+            maCheckers[maCheckerCount] = square;
+            maLegs[maCheckerCount++] = leg;
+            inCheck = true;
+            evasionStamps[square] = stamp;
+            evasionStamps[leg] = stamp;
+        }
+    }
+
+    private void addLegPin(int row, int col, int leg) {
+        if (isEnemy(row, col, PieceType.MA)) {
+            legPins[legPinCount] = leg;
+            legPinMas[legPinCount++] = row * COLS + col;
+        }
+    }
+
+    private void addSoldierChecker(int row, int col) {
+        if (isEnemy(row, col, PieceType.SOLDIER) && soldierAttacks(row, col, general)) {
+            int square = row * COLS + col;
+            soldierCheckers[soldierCheckerCount++] = square;
+            inCheck = true;
+            evasionStamps[square] = stamp;
+        }
+    }
+
+    private boolean isEnemy(int row, int col, PieceType type) {
+        if (!model.isValidPosition(row, col)) {
+            return false;
+        }
+        AbstractPiece piece = model.getPieceAt(row, col);
+        return piece != null && piece.isRed() != red && piece.getType() == type;
+    }
+
+    /**
+     * square 上是否是能沿直线吃将的对方子：隔着炮架时是炮，否则是车或将（对面笑）
+     */
+    private boolean isEnemyLinePiece(int square, boolean screened) {
+        if (square < 0) {
+            return false;
+        }
+        AbstractPiece piece = model.getPieceAt(square);
+        if (piece.isRed() == red) {
+            return false;
+        }
+        return screened ? piece.getType() == PieceType.PAO
+                : piece.getType() == PieceType.CAR || piece.getType() == PieceType.GENERAL;
+    }
+
+    private boolean isFreeScreen(int square) {
+        for (int i = 0; i < freeScreenCount; i++) {
+            if (freeScreens[i] == square) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * square 在将的哪条直线上，不在时返回 -1
+     */
+    private int rayOf(int square) {
+        int row = square / COLS;
+        int col = square % COLS;
+        if (col == generalCol) {
+            return row < generalRow ? 0 : 1;
+        }
+        if (row == generalRow) {
+            return col < generalCol ? 2 : 3;
+        }
+        return -1;
+    }
+
+    /**
+     * 己方子从 from 走到 to 之后，dir 方向上是否有对方车、将或炮在吃将
+     * 只需要调整扫描时记下的三个子：去掉 from，按距离插入 to（to 上原来的子被吃掉，换成己方子）
+     */
+    private boolean isLineAttackedAfter(int dir, int from, int to) {
+        int toDistance = rayOf(to) == dir ? distance(to) : Integer.MAX_VALUE;
+        boolean toPlaced = false;
+        lineCount = 0;
+        for (int i = 0; i < RAY_PIECES && lineCount < 2; i++) {
+            int square = rays[dir * RAY_PIECES + i];
+            if (square < 0) {
+                break;
+            }
+            if (!toPlaced && toDistance <= distance(square)) {
+                addLineSquare(to);
+                toPlaced = true;
+                if (square == to) {
+                    continue; // 被吃掉的子由己方子代替
+                }
+            }
+            if (square != from) {
+                addLineSquare(square);
+            }
+        }
+        if (!toPlaced && toDistance != Integer.MAX_VALUE) {
+            addLineSquare(to);
+        }
+        // to 上已经是己方子
+        return (lineCount > 0 && lineSquares[0] != to && isEnemyLinePiece(lineSquares[0], false))
+                || (lineCount > 1 && lineSquares[1] != to && isEnemyLinePiece(lineSquares[1], true));
+    }
+
+    private void addLineSquare(int square) {
+        if (lineCount < 2) {
+            lineSquares[lineCount++] = square;
+        }
+    }
+
+    private int distance(int square) {
+        return Math.abs(square / COLS - generalRow) + Math.abs(square % COLS - generalCol);
+    }
+
+    /**
+     * 将/帅走到 to 之后是否被吃（原位置视为空）
+     */
+    private boolean isAttackedAfterGeneralMove(int to) {
+        int row = to / COLS;
+        int col = to % COLS;
+
+        // 车、炮和对面的将：沿四个方向，原位置的将已经离开
+        for (int[] d : AbstractPiece.LINE_DIRECTIONS) {
+            int r = row + d[0];
+            int c = col + d[1];
+            int first = -1;
+            int second = -1;
+            while (r >= 0 && r < ROWS && c >= 0 && c < COLS && second < 0) {
+                int square = r * COLS + c;
+                if (square != general && model.getPieceAt(square) != null) {
+                    if (first < 0) {
+                        first = square;
+                    } else {
+                        second = square;
+                    }
+                }
+                r += d[0];
+                c += d[1];
+            }
+            if (isEnemyLinePiece(first, false) || isEnemyLinePiece(second, true)) {
+                return true;
+            }
+        }
+
+        // 马：马腿在新位置的斜角上，原位置的将可能正是马腿
+        for (int dr = -1; dr <= 1; dr += 2) {
+            for (int dc = -1; dc <= 1; dc += 2) {
+                int legRow = row + dr;
+                int legCol = col + dc;
+                if (!model.isValidPosition(legRow, legCol)
+                        || (model.getPieceAt(legRow, legCol) != null && legRow * COLS + legCol != general)) {
+                    continue;
+                }
+                if (isEnemy(row + 2 * dr, col + dc, PieceType.MA) || isEnemy(row + dr, col + 2 * dc, PieceType.MA)) {
+                    return true;
+                }
+            }
+        }
+
+        // 兵/卒
+        int forward = red ? -1 : 1;
+        return (isEnemy(row + forward, col, PieceType.SOLDIER) && soldierAttacks(row + forward, col, to))
+                || (isEnemy(row, col - 1, PieceType.SOLDIER) && soldierAttacks(row, col - 1, to))
+                || (isEnemy(row, col + 1, PieceType.SOLDIER) && soldierAttacks(row, col + 1, to));
+    }
+
+    /**
+     * 对方 (row, col) 上的兵能否吃到相邻的 target：向前总可以，过河后还能横吃
+     */
+    private boolean soldierAttacks(int row, int col, int target) {
+        if (target / COLS != row) {
+            return true; // 正前方，调用方已保证方向
+        }
+        // 对方兵：己方是红方时它是黑卒，row >= 5 为过河
+        return red ? row >= 5 : row <= 4;
+    }
+}
@@ -5,13 +5,13 @@ package edu.sustech.xiangqi.model;
  */
 public class MaPiece extends AbstractPiece {
 
-    public MaPiece(String name, int row, int col, boolean isRed) {
-        super(name, row, col, isRed);
+    public MaPiece(int row, int col, boolean isRed) {
+        super(PieceType.MA, row, col, isRed);
     }
 
     @Override
     public AbstractPiece copy() {
-        return new MaPiece(this.getName(), this.getRow(), this.getCol(), this.isRed());
+        return new MaPiece(this.getRow(), this.getCol(), this.isRed());
     }
 
     @Override
@@ -66,4 +66,20 @@ public class MaPiece extends AbstractPiece {
 
         return true;
     }
+
+    @Override
+    public int generateMoves(ChessBoardModel model, int[] targets, int count) {
+        int from = ChessBoardModel.toSquare(getRow(), getCol());
+        int[] legs = MoveTables.MA_LEGS[from];
+        int[][] moves = MoveTables.MA_MOVES[from];
+        for (int i = 0; i < legs.length; i++) {
+            if (model.getPieceAt(legs[i]) != null) {
+                continue; // 马脚被别住
+            }
+            for (int to : moves[i]) {
+                count = addTarget(model, to, targets, count);
+            }
+        }
+        return count;
+    }
 }
\ No newline at end of file
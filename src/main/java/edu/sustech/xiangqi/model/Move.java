@@ -1,5 +1,11 @@
 package edu.sustech.xiangqi.model;
 
+/**
+ * 走法对象，供界面和悔棋历史使用
+ * 搜索路径上使用 encode 编码出的整数走法，避免创建对象：
+ * 位 0~6 起点格，位 7~13 终点格，位 14~17 走子编码，位 18~21 被吃棋子编码 + 1（0 表示不吃子）
+ * 格子索引为 row * COLS + col，棋子编码见 AbstractPiece.getCode
+ */
 public class Move {
     private final AbstractPiece movedPiece;
     private final int fromRow;
@@ -40,4 +46,48 @@ public class Move {
     public AbstractPiece getEatPiece() {
         return eatPiece;
     }
+
+    // ======================== 整数走法编码 ========================
+
+    /**
+     * @param capturedCode 被吃棋子编码，不吃子时传 -1
+     */
+    public static int encode(int from, int to, int pieceCode, int capturedCode) {
+        return from | (to << 7) | (pieceCode << 14) | ((capturedCode + 1) << 18);
+    }
+
+    public static int from(int move) {
+        return move & 0x7F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 7) & 0x7F;
+    }
+
+    public static int piece(int move) {
+        return (move >>> 14) & 0xF;
+    }
+
+    /**
+     * @return 被吃棋子编码，不吃子时返回 -1
+     */
+    public static int captured(int move) {
+        return ((move >>> 18) & 0xF) - 1;
+    }
+
+    public static boolean isCapture(int move) {
+        return (move >>> 18) != 0;
+    }
+
+    /**
+     * 整数走法的 ICCS 坐标表示，例如 "h2e2"：列从左到右为 a~i，行从红方底线起为 0~9
+     */
+    public static String toIccs(int move) {
+        return squareToIccs(from(move)) + squareToIccs(to(move));
+    }
+
+    private static String squareToIccs(int square) {
+        int cols = ChessBoardModel.getCols();
+        return "" + (char) ('a' + square % cols) + (ChessBoardModel.getRows() - 1 - square / cols);
+    }
 }
\ No newline at end of file
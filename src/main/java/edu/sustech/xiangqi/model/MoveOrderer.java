@@ -0,0 +1,173 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.Arrays;
+
+/**
+ * 走法排序：置换表走法 > 不亏的吃子（MVV-LVA）> 两个杀手走法 > 按历史表排序的其他走法 > 亏子的吃子
+ * 吃子是否亏由静态交换评估 (SEE) 判断：以小吃大不必计算，其余吃子轮到它时才计算（见 MovePicker），
+ * 截断后没轮到的吃子不用计算；搜索中按这个顺序分阶段取走法的是 MovePicker，这里保存杀手和历史表并给出分数
+ * Alpha-Beta 只有在好走法先搜时才能剪掉大量分支，排序质量直接决定节点数
+ */
+public class MoveOrderer {
+    private static final int TT_MOVE_SCORE = 1 << 30;
+    private static final int CAPTURE_SCORE = 1 << 28;
+    private static final int KILLER_SCORE = 1 << 27;
+    private static final int HISTORY_MAX = KILLER_SCORE - 1;
+    private static final int BAD_CAPTURE_SCORE = -(1 << 28); // 加上 MVV-LVA 后仍为负数
+    private static final int SQUARES = ChessBoardModel.getRows() * ChessBoardModel.getCols();
+
+    // 每层两个杀手走法：在同一层的兄弟节点里造成过 beta 截断的非吃子走法
+    private final int[][] killers;
+    // 蝴蝶历史表：按 [起点][终点] 累计非吃子走法造成截断的次数（按深度加权）
+    private final int[][] history = new int[SQUARES][SQUARES];
+    private final StaticExchange staticExchange;
+
+    /**
+     * @param staticExchange 所在棋盘的静态交换评估，用于区分吃子的好坏
+     */
+    public MoveOrderer(int maxPly, StaticExchange staticExchange) {
+        this.killers = new int[maxPly][2];
+        this.staticExchange = staticExchange;
+    }
+
+    /**
+     * 新的一次搜索开始：清空杀手走法，历史分减半，让旧的经验逐渐淡出
+     */
+    public void newSearch() {
+        for (int[] slot : killers) {
+            Arrays.fill(slot, 0);
+        }
+        for (int[] row : history) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] >>= 1;
+            }
+        }
+    }
+
+    /**
+     * 给每个走法打分，写入 scores 的对应位置
+     */
+    public void scoreMoves(int[] moves, int[] scores, int count, int ttMove, int ply) {
+        int killer0 = killers[ply][0];
+        int killer1 = killers[ply][1];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (move == ttMove) {
+                scores[i] = TT_MOVE_SCORE;
+            } else if (Move.isCapture(move)) {
+                scores[i] = CAPTURE_SCORE + mvvLva(move);
+            } else if (move == killer0) {
+                scores[i] = KILLER_SCORE + 1;
+            } else if (move == killer1) {
+                scores[i] = KILLER_SCORE;
+            } else {
+                scores[i] = history[Move.from(move)][Move.to(move)];
+            }
+        }
+    }
+
+    /**
+     * 一次性对所有吃子计算 SEE，把亏子的吃子降级（需要整体排序的根节点使用）
+     */
+    public void resolveCaptures(int[] moves, int[] scores, int count) {
+        for (int i = 0; i < count; i++) {
+            if (scores[i] >= CAPTURE_SCORE && scores[i] < TT_MOVE_SCORE && !isWinningCapture(moves[i])) {
+                scores[i] = BAD_CAPTURE_SCORE + mvvLva(moves[i]);
+            }
+        }
+    }
+
+    /**
+     * 选择排序的一步：把 [index, count) 中分数最高的走法换到 index 处并返回
+     * 大多数节点在前几个走法就截断，逐个挑选比整体排序更省
+     */
+    public static int pickNext(int[] moves, int[] scores, int index, int count) {
+        int best = index;
+        for (int i = index + 1; i < count; i++) {
+            if (scores[i] > scores[best]) {
+                best = i;
+            }
+        }
+        if (best != index) {
+            int move = moves[best];
+            moves[best] = moves[index];
+            moves[index] = move;
+            int score = scores[best];
+            scores[best] = scores[index];
+            scores[index] = score;
+        }
+        return moves[index];
+    }
+
+    /**
+     * 按分数从高到低做稳定排序（根节点用，保留原来的相对顺序）
+     */
+    public static void sort(int[] moves, int[] scores, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+        }
+    }
+
+    /**
+     * 吃子是否不亏：被吃的子不比吃子的子便宜，或者交换下来不丢子
+     */
+    public boolean isWinningCapture(int move) {
+        return EvaluationTables.BASE_VALUES[Move.captured(move)] >= EvaluationTables.BASE_VALUES[Move.piece(move)]
+                || staticExchange.evaluate(move) >= 0;
+    }
+
+    /**
+     * ply 层的第 slot 个杀手走法（0 或 1），没有时为 0
+     */
+    public int getKiller(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    /**
+     * 非吃子走法的历史分
+     */
+    public int historyScore(int move) {
+        return history[Move.from(move)][Move.to(move)];
+    }
+
+    /**
+     * 记录造成 beta 截断的非吃子走法
+     */
+    public void recordCutoff(int move, int depth, int ply) {
+        if (Move.isCapture(move)) {
+            return;
+        }
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+        int[] row = history[Move.from(move)];
+        int to = Move.to(move);
+        row[to] += depth * depth;
+        if (row[to] > HISTORY_MAX) {
+            // 溢出前整体减半，保持相对大小
+            for (int[] r : history) {
+                for (int i = 0; i < r.length; i++) {
+                    r[i] >>= 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * MVV-LVA：先吃价值高的子，同等情况下用价值低的子去吃
+     */
+    public static int mvvLva(int move) {
+        return EvaluationTables.BASE_VALUES[Move.captured(move)] * 16
+                - EvaluationTables.BASE_VALUES[Move.piece(move)] / 100;
+    }
+}
@@ -0,0 +1,181 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * 分阶段的走法选择器：按 置换表走法 > 不亏的吃子 > 杀手走法 > 普通走法 > 亏子的吃子 的顺序逐个给出合法走法
+ * 每个阶段在前一阶段用完后才生成，第一个走法就截断的节点不必生成、排序其余走法
+ * 置换表走法和杀手走法来自别的局面，先在当前局面验证伪合法再给出（杀手走法到它的阶段才验证）；合法性由 LegalMoveGenerator 判定，被将军时只给出应将走法
+ * 搜索中每层各用一个实例，递归时不能共用
+ */
+public class MovePicker {
+    private static final int MAX_MOVES = 128;
+
+    private static final int STAGE_TT_MOVE = 0;
+    private static final int STAGE_GENERATE_CAPTURES = 1;
+    private static final int STAGE_GOOD_CAPTURES = 2;
+    private static final int STAGE_KILLERS = 3;
+    private static final int STAGE_GENERATE_QUIETS = 4;
+    private static final int STAGE_QUIETS = 5;
+    private static final int STAGE_BAD_CAPTURES = 6;
+    private static final int STAGE_DONE = 7;
+
+    private final GameLogicModel logic;
+    private final MoveOrderer orderer; // 为 null 时不用杀手和历史表，也不区分吃子好坏
+    private final LegalMoveGenerator legality;
+    private final int[] moves = new int[MAX_MOVES];
+    private final int[] scores = new int[MAX_MOVES];
+    private final int[] badCaptures = new int[MAX_MOVES];
+    private int stage;
+    private int index;
+    private int count;
+    private int badCount;
+    private int ttMove;
+    private int killer0;
+    private int killer1;
+    private int ply;
+    private boolean capturesOnly;
+    private int lastStage; // 上一个给出的走法所在的阶段
+
+    public MovePicker(GameLogicModel logic, MoveOrderer orderer) {
+        this.logic = logic;
+        this.orderer = orderer;
+        this.legality = new LegalMoveGenerator(logic);
+    }
+
+    /**
+     * 开始为当前局面挑选走法
+     * @param ttMove 置换表走法，没有时为 0
+     * @param capturesOnly 只给出置换表走法和不亏的吃子（静态搜索用），被将军时无效，仍给出全部应将走法
+     */
+    public void reset(int ttMove, int ply, boolean capturesOnly) {
+        legality.setup(logic.isRedTurn());
+        this.capturesOnly = capturesOnly && !legality.isInCheck();
+        this.ttMove = ttMove != 0 && (!this.capturesOnly || Move.isCapture(ttMove)) && logic.isPseudoLegal(ttMove)
+                && legality.isLegal(ttMove) ? ttMove : 0;
+        this.ply = ply;
+        killer0 = 0;
+        killer1 = 0;
+        stage = STAGE_TT_MOVE;
+    }
+
+    /**
+     * 下一个合法走法，全部给出后返回 0
+     */
+    public int next() {
+        while (true) {
+            switch (stage) {
+                case STAGE_TT_MOVE:
+                    stage = STAGE_GENERATE_CAPTURES;
+                    if (ttMove != 0) {
+                        lastStage = STAGE_TT_MOVE;
+                        return ttMove;
+                    }
+                    break;
+                case STAGE_GENERATE_CAPTURES:
+                    count = logic.generateCaptures(moves);
+                    for (int i = 0; i < count; i++) {
+                        scores[i] = MoveOrderer.mvvLva(moves[i]);
+                    }
+                    index = 0;
+                    badCount = 0;
+                    stage = STAGE_GOOD_CAPTURES;
+                    break;
+                case STAGE_GOOD_CAPTURES:
+                    while (index < count) {
+                        int move = MoveOrderer.pickNext(moves, scores, index++, count);
+                        if (move == ttMove || !legality.isLegal(move)) {
+                            continue;
+                        }
+                        // 轮到它时才计算 SEE，亏子的吃子留到最后
+                        if (orderer != null && !orderer.isWinningCapture(move)) {
+                            badCaptures[badCount++] = move;
+                            continue;
+                        }
+                        lastStage = STAGE_GOOD_CAPTURES;
+                        return move;
+                    }
+                    stage = capturesOnly ? STAGE_DONE : STAGE_KILLERS;
+                    index = 0;
+                    break;
+                case STAGE_KILLERS:
+                    if (index == 0 && orderer != null) {
+                        // 到这一阶段才验证杀手走法，在置换表走法或吃子上截断的节点不必付出这部分开销
+                        killer0 = validKiller(orderer.getKiller(ply, 0));
+                        killer1 = validKiller(orderer.getKiller(ply, 1));
+                        if (killer1 == killer0) {
+                            killer1 = 0;
+                        }
+                    }
+                    int killer = index++ == 0 ? killer0 : killer1;
+                    if (index >= 2) {
+                        stage = STAGE_GENERATE_QUIETS;
+                    }
+                    if (killer != 0 && killer != ttMove) {
+                        lastStage = STAGE_KILLERS;
+                        return killer;
+                    }
+                    break;
+                case STAGE_GENERATE_QUIETS:
+                    count = logic.generateQuiets(moves);
+                    if (orderer != null) {
+                        for (int i = 0; i < count; i++) {
+                            scores[i] = orderer.historyScore(moves[i]);
+                        }
+                    }
+                    index = 0;
+                    stage = STAGE_QUIETS;
+                    break;
+                case STAGE_QUIETS:
+                    while (index < count) {
+                        int move = orderer != null ? MoveOrderer.pickNext(moves, scores, index, count) : moves[index];
+                        index++;
+                        if (move == ttMove || move == killer0 || move == killer1 || !legality.isLegal(move)) {
+                            continue;
+                        }
+                        lastStage = STAGE_QUIETS;
+                        return move;
+                    }
+                    stage = STAGE_BAD_CAPTURES;
+                    index = 0;
+                    break;
+                case STAGE_BAD_CAPTURES:
+                    if (index < badCount) {
+                        lastStage = STAGE_BAD_CAPTURES;
+                        return badCaptures[index++];
+                    }
+                    stage = STAGE_DONE;
+                    break;
+                default:
+                    return 0;
+            }
+        }
+    }
+
+    /**
+     * reset 时走棋方是否被将军
+     */
+    public boolean isInCheck() {
+        return legality.isInCheck();
+    }
+
+    /**
+     * 上一个走法是否来自普通走法或亏子的吃子阶段（即不是置换表走法、不亏的吃子或杀手走法），这类走法可以做晚走法裁剪
+     */
+    public boolean isQuiet() {
+        return lastStage >= STAGE_QUIETS;
+    }
+
+    /**
+     * 上一个走法是否是亏子的吃子
+     */
+    public boolean isLosingCapture() {
+        return lastStage == STAGE_BAD_CAPTURES;
+    }
+
+    /**
+     * 杀手走法在当前局面仍是合法的非吃子走法时才使用
+     */
+    private int validKiller(int killer) {
+        return killer != 0 && !Move.isCapture(killer) && logic.isPseudoLegal(killer) && legality.isLegal(killer)
+                ? killer : 0;
+    }
+}
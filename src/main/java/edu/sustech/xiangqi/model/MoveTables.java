@@ -0,0 +1,149 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预计算的走子表：将/士在九宫内的一步、象眼和象步、马腿和马步、兵/卒的走法
+ * 各棋子的 generateMoves 按格子直接查表，不再逐个目标格调用 canMoveTo 判断几何关系
+ * 格子索引与 ChessBoardModel 一致：row * 9 + col；下标中的 color：0 = 红方，1 = 黑方
+ */
+final class MoveTables {
+    private static final int ROWS = ChessBoardModel.getRows();
+    private static final int COLS = ChessBoardModel.getCols();
+    private static final int SQUARES = ROWS * COLS;
+
+    // 将/帅、士/仕 在九宫内的一步走法
+    static final int[][][] GENERAL_MOVES = new int[2][SQUARES][];
+    static final int[][][] SHI_MOVES = new int[2][SQUARES][];
+
+    // 象/相：XIANG_EYES[color][sq][i] 是第 i 个象眼，XIANG_MOVES[color][sq][i] 是象眼空着时的目标格
+    static final int[][][] XIANG_EYES = new int[2][SQUARES][];
+    static final int[][][] XIANG_MOVES = new int[2][SQUARES][];
+
+    // 马：MA_LEGS[sq][i] 是第 i 个马腿，MA_MOVES[sq][i] 是马腿空着时可到达的格子（每个马腿对应 1~2 格）
+    static final int[][] MA_LEGS = new int[SQUARES][];
+    static final int[][][] MA_MOVES = new int[SQUARES][][];
+
+    // 兵/卒 的走法（未过河只能前进，过河后还能左右平移）
+    static final int[][][] SOLDIER_MOVES = new int[2][SQUARES][];
+
+    static {
+        initPalaceTables();
+        initXiangTables();
+        initMaTables();
+        initSoldierTables();
+    }
+
+    private MoveTables() {
+    }
+
+    private static boolean inBoard(int row, int col) {
+        return row >= 0 && row < ROWS && col >= 0 && col < COLS;
+    }
+
+    private static boolean inPalace(int color, int row, int col) {
+        if (col < 3 || col > 5) return false;
+        return color == 0 ? row >= 7 && row < ROWS : row >= 0 && row <= 2;
+    }
+
+    private static boolean ownHalf(int color, int row) {
+        return color == 0 ? row >= 5 : row <= 4;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] result = new int[list.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = list.get(i);
+        }
+        return result;
+    }
+
+    private static void initPalaceTables() {
+        int[][] orthogonal = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        int[][] diagonal = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+        for (int color = 0; color < 2; color++) {
+            for (int sq = 0; sq < SQUARES; sq++) {
+                int row = sq / COLS;
+                int col = sq % COLS;
+                List<Integer> general = new ArrayList<>();
+                List<Integer> shi = new ArrayList<>();
+                for (int[] d : orthogonal) {
+                    if (inPalace(color, row + d[0], col + d[1])) general.add((row + d[0]) * COLS + col + d[1]);
+                }
+                for (int[] d : diagonal) {
+                    if (inPalace(color, row + d[0], col + d[1])) shi.add((row + d[0]) * COLS + col + d[1]);
+                }
+                GENERAL_MOVES[color][sq] = toArray(general);
+                SHI_MOVES[color][sq] = toArray(shi);
+            }
+        }
+    }
+
+    private static void initXiangTables() {
+        int[][] diagonal = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}};
+        for (int color = 0; color < 2; color++) {
+            for (int sq = 0; sq < SQUARES; sq++) {
+                int row = sq / COLS;
+                int col = sq % COLS;
+                List<Integer> eyes = new ArrayList<>();
+                List<Integer> targets = new ArrayList<>();
+                for (int[] d : diagonal) {
+                    int toRow = row + 2 * d[0];
+                    int toCol = col + 2 * d[1];
+                    if (inBoard(toRow, toCol) && ownHalf(color, toRow)) {
+                        eyes.add((row + d[0]) * COLS + col + d[1]);
+                        targets.add(toRow * COLS + toCol);
+                    }
+                }
+                XIANG_EYES[color][sq] = toArray(eyes);
+                XIANG_MOVES[color][sq] = toArray(targets);
+            }
+        }
+    }
+
+    private static void initMaTables() {
+        int[][] orthogonal = {{-1, 0}, {1, 0}, {0, -1}, {0, 1}};
+        for (int sq = 0; sq < SQUARES; sq++) {
+            int row = sq / COLS;
+            int col = sq % COLS;
+            // 先直走一格（马腿），再向两侧斜走一格
+            List<Integer> legs = new ArrayList<>();
+            List<int[]> groups = new ArrayList<>();
+            for (int[] d : orthogonal) {
+                int legRow = row + d[0];
+                int legCol = col + d[1];
+                if (!inBoard(legRow, legCol)) continue;
+                List<Integer> targets = new ArrayList<>();
+                for (int side = -1; side <= 1; side += 2) {
+                    int toRow = legRow + d[0] + (d[0] == 0 ? side : 0);
+                    int toCol = legCol + d[1] + (d[1] == 0 ? side : 0);
+                    if (inBoard(toRow, toCol)) targets.add(toRow * COLS + toCol);
+                }
+                if (!targets.isEmpty()) {
+                    legs.add(legRow * COLS + legCol);
+                    groups.add(toArray(targets));
+                }
+            }
+            MA_LEGS[sq] = toArray(legs);
+            MA_MOVES[sq] = groups.toArray(new int[0][]);
+        }
+    }
+
+    private static void initSoldierTables() {
+        for (int color = 0; color < 2; color++) {
+            int forward = color == 0 ? -1 : 1; // 红兵向上（row 减小），黑卒向下
+            for (int sq = 0; sq < SQUARES; sq++) {
+                int row = sq / COLS;
+                int col = sq % COLS;
+                List<Integer> targets = new ArrayList<>();
+                if (inBoard(row + forward, col)) targets.add((row + forward) * COLS + col);
+                if (!ownHalf(color, row)) {
+                    if (col > 0) targets.add(sq - 1);
+                    if (col < COLS - 1) targets.add(sq + 1);
+                }
+                SOLDIER_MOVES[color][sq] = toArray(targets);
+            }
+        }
+    }
+}
@@ -5,13 +5,13 @@ package edu.sustech.xiangqi.model;
  */
 public class PaoPiece extends AbstractPiece {
 
-    public PaoPiece(String name, int row, int col, boolean isRed) {
-        super(name, row, col, isRed);
+    public PaoPiece(int row, int col, boolean isRed) {
+        super(PieceType.PAO, row, col, isRed);
     }
 
     @Override
     public AbstractPiece copy() {
-        return new PaoPiece(this.getName(), this.getRow(), this.getCol(), this.isRed());
+        return new PaoPiece(this.getRow(), this.getCol(), this.isRed());
     }
 
     @Override
@@ -88,4 +88,33 @@ public class PaoPiece extends AbstractPiece {
         return true;
 
     }
+
+    @Override
+    public int generateMoves(ChessBoardModel model, int[] targets, int count) {
+        for (int[] d : LINE_DIRECTIONS) {
+            int r = getRow() + d[0];
+            int c = getCol() + d[1];
+            // 1. 炮架之前的空位都可以走
+            while (model.isValidPosition(r, c) && model.getPieceAt(r, c) == null) {
+                targets[count++] = ChessBoardModel.toSquare(r, c);
+                r += d[0];
+                c += d[1];
+            }
+            // 2. 越过炮架，吃掉其后的第一个对方棋子
+            r += d[0];
+            c += d[1];
+            while (model.isValidPosition(r, c)) {
+                AbstractPiece piece = model.getPieceAt(r, c);
+                if (piece != null) {
+                    if (piece.isRed() != isRed()) {
+                        targets[count++] = ChessBoardModel.toSquare(r, c);
+                    }
+                    break;
+                }
+                r += d[0];
+                c += d[1];
+            }
+        }
+        return count;
+    }
 }
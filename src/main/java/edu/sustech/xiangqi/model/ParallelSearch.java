@@ -0,0 +1,38 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * 多线程搜索的公共接口，不同的并行策略见 ParallelStrategy
+ */
+public interface ParallelSearch {
+    /**
+     * 按难度设置剪枝开关
+     */
+    void configure(Difficulty difficulty);
+
+    /**
+     * 迭代加深搜索，参数含义同 Searcher.findBestMove
+     * @return 最佳走法，没有可走的棋时返回 null
+     */
+    Move findBestMove(int maxDepth, long timeLimitMs, long nodeLimit);
+
+    /**
+     * 请求停止搜索（可从其他线程调用），各线程会在下一次检查预算时结束，findBestMove 随即返回
+     * 停止请求不会撤销
+     */
+    void stop();
+
+    /**
+     * 设置绝对截止时间（System.currentTimeMillis 的值），可在搜索进行中调用，不会被 findBestMove 重置
+     * 用于后台思考：先不限时搜索，猜中对手的走法后再定下截止时间
+     */
+    void setDeadline(long deadline);
+
+    int getCompletedDepth();
+
+    PrincipalVariation getPrincipalVariation();
+
+    /**
+     * 所有线程搜索的节点数之和
+     */
+    long getNodes();
+}
@@ -0,0 +1,33 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * 并行搜索策略
+ */
+public enum ParallelStrategy {
+    // 各线程独立搜索整棵树，只共享置换表
+    LAZY_SMP("Lazy SMP"),
+    // 每个节点先串行搜长子，再把其余兄弟节点作为 ForkJoin 任务并行搜索
+    YOUNG_BROTHERS_WAIT("Young Brothers Wait");
+
+    private final String displayName;
+
+    ParallelStrategy(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * 按本策略创建并行搜索
+     * @param logic 搜索用的沙盒
+     * @param threadCount 线程数
+     */
+    public ParallelSearch create(GameLogicModel logic, TranspositionTable transTable, int threadCount) {
+        switch (this) {
+            case YOUNG_BROTHERS_WAIT: return new YbwcSearch(logic, transTable, threadCount);
+            default: return new LazySmpSearch(logic, transTable, threadCount);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * 棋子种类
+ * 与颜色一起组成棋子编码 (AbstractPiece.getCode)：红方为 ordinal()，黑方为 ordinal() + 7，
+ * 估值表、FEN、图片等都按编码查表，显示用的中文名只在绘制时才取
+ */
+public enum PieceType {
+    GENERAL('k', "帅", "将"),
+    SHI('a', "仕", "士"),
+    XIANG('b', "相", "象"),
+    MA('n', "马", "马"),
+    CAR('r', "车", "车"),
+    PAO('c', "炮", "炮"),
+    SOLDIER('p', "兵", "卒");
+
+    // 黑方棋子编码相对红方的偏移
+    public static final int BLACK_OFFSET = 7;
+    // 棋子编码总数
+    public static final int CODE_COUNT = 14;
+
+    private static final PieceType[] VALUES = values();
+
+    private final char fenChar;
+    private final String redName;
+    private final String blackName;
+
+    PieceType(char fenChar, String redName, String blackName) {
+        this.fenChar = fenChar;
+        this.redName = redName;
+        this.blackName = blackName;
+    }
+
+    /**
+     * FEN 字符：红方大写，黑方小写
+     */
+    public char getFenChar(boolean isRed) {
+        return isRed ? Character.toUpperCase(fenChar) : fenChar;
+    }
+
+    /**
+     * 显示用的中文名，仅供绘制
+     */
+    public String getDisplayName(boolean isRed) {
+        return isRed ? redName : blackName;
+    }
+
+    public int getCode(boolean isRed) {
+        return isRed ? ordinal() : ordinal() + BLACK_OFFSET;
+    }
+
+    public static PieceType fromCode(int code) {
+        return VALUES[code % BLACK_OFFSET];
+    }
+
+    public static boolean isRedCode(int code) {
+        return code < BLACK_OFFSET;
+    }
+
+    /**
+     * 由 FEN 字符得到棋子种类（不区分大小写），无法识别时返回 null
+     */
+    public static PieceType fromFenChar(char ch) {
+        char lower = Character.toLowerCase(ch);
+        for (PieceType type : VALUES) {
+            if (type.fenChar == lower) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
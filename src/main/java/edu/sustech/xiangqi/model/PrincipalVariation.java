@@ -0,0 +1,51 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * 主要变例：搜索认为双方都走最佳应对时的走法序列及其分数
+ * 走法为整数编码 (Move.encode)，第一步就是根节点的最佳走法
+ */
+public class PrincipalVariation {
+    private final int[] moves;
+    private final int score;
+    private final int depth;
+
+    public PrincipalVariation(int[] moves, int score, int depth) {
+        this.moves = moves.clone();
+        this.score = score;
+        this.depth = depth;
+    }
+
+    public int[] getMoves() {
+        return moves.clone();
+    }
+
+    /**
+     * @return 第一步走法，变例为空时返回 0
+     */
+    public int getFirstMove() {
+        return moves.length > 0 ? moves[0] : 0;
+    }
+
+    /**
+     * 站在根节点走棋方角度的分数
+     */
+    public int getScore() {
+        return score;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int move : moves) {
+            if (sb.length() > 0) {
+                sb.append(' ');
+            }
+            sb.append(Move.toIccs(move));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,269 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.Arrays;
+
+/**
+ * 重复局面裁决器：按亚洲规则裁决循环局面的责任方
+ * 逐着记录局面键以及这一着是否将军、是否捉子，并增量维护“同一方连续将军”的着数，
+ * 出现循环时只需比较循环长度和两方的连续着数，再看循环内各着是否捉子即可裁决，不必重放棋局：
+ * 一方长将另一方不长将，长将方负；双方都长将算和；都不长将时，一方长打（捉或将捉交替）另一方闲着，长打方负；其余作和
+ * 吃子和空着不可逆，循环不会跨过它们
+ * 捉子的判定比将军贵得多，搜索中先只记将军，捉子标为未知，真的出现循环时再由搜索补上（见 needsChase）
+ * 对局（GameLogicModel）和搜索（Searcher）各自持有一份，搜索前复制对局里的那一份
+ * 已知的两处简化：
+ * 一、只有长将是按方增量维护的；长打要在 adjudicate 里逐着检查循环内的捉子标记，代价与循环长度成正比，
+ * 好在只在真的出现循环时才会走到这一步
+ * 二、isChase 只看刚走动的那个子能否捉子，走开一子让身后的车、炮去捉的“闪捉”不算捉，这类长捉会被判和
+ */
+public class RepetitionAdjudicator {
+    /**
+     * 裁决结果，站在最后一着的走子方（mover）角度
+     */
+    public enum Verdict {
+        NONE,        // 没有出现循环
+        DRAW,        // 循环，作和
+        MOVER_LOSES, // 走子方长将或长捉，判负
+        MOVER_WINS   // 对方长将或长捉，对方判负
+    }
+
+    private static final byte CHASE_NO = 0;
+    private static final byte CHASE_YES = 1;
+    private static final byte CHASE_UNKNOWN = 2;
+
+    private static final int FILTER_SIZE = 4096;
+    private static final int FILTER_MASK = FILTER_SIZE - 1;
+
+    // 下标 i 是第 i 着之后的局面，0 是起始局面
+    private long[] keys = new long[64];
+    private int[] checkRuns = new int[64];  // 到这一着为止同一方连续将军的着数
+    private byte[] chases = new byte[64];   // 这一着是否捉子，搜索中可能暂时未知
+    private int[] floors = new int[64];     // 最近一个不可逆局面的下标，循环不会早于它
+    private int size;
+    // 按键的低位计数的过滤器，为 0 时说明栈里没有同键局面，绝大多数节点据此 O(1) 排除重复
+    private final int[] filter = new int[FILTER_SIZE];
+
+    public RepetitionAdjudicator(long startKey) {
+        reset(startKey);
+    }
+
+    /**
+     * 清空记录，从 startKey 这个局面重新开始
+     */
+    public void reset(long startKey) {
+        Arrays.fill(filter, 0);
+        size = 0;
+        push(startKey, true);
+    }
+
+    /**
+     * 记录走完一着后的局面，将军和捉子由 attribute 随后补上（默认都不是）
+     * @param irreversible 这一着是吃子或空着，之前的局面不会再出现
+     */
+    public void push(long key, boolean irreversible) {
+        if (size == keys.length) {
+            int capacity = size * 2;
+            keys = Arrays.copyOf(keys, capacity);
+            checkRuns = Arrays.copyOf(checkRuns, capacity);
+            chases = Arrays.copyOf(chases, capacity);
+            floors = Arrays.copyOf(floors, capacity);
+        }
+        keys[size] = key;
+        checkRuns[size] = 0;
+        chases[size] = CHASE_NO;
+        floors[size] = irreversible || size == 0 ? size : floors[size - 1];
+        filter[(int) key & FILTER_MASK]++;
+        size++;
+    }
+
+    /**
+     * 记录走完一着后的局面并同时给出这一着的性质（对局里落子时使用）
+     */
+    public void push(long key, boolean irreversible, boolean check, boolean chase) {
+        push(key, irreversible);
+        attribute(check, chase);
+    }
+
+    /**
+     * 补记最后一着是否将军、是否捉子
+     */
+    public void attribute(boolean check, boolean chase) {
+        attributeCheck(check);
+        chases[size - 1] = chase ? CHASE_YES : CHASE_NO;
+    }
+
+    /**
+     * 只补记最后一着是否将军，捉子留待出现循环时用 attributeChase 补上（搜索中使用）
+     */
+    public void attributeCheck(boolean check) {
+        int last = size - 1;
+        int previous = last - 2 >= floors[last] ? last - 2 : -1;
+        checkRuns[last] = check ? (previous >= 0 ? checkRuns[previous] : 0) + 1 : 0;
+        chases[last] = CHASE_UNKNOWN;
+    }
+
+    /**
+     * 第 index 着的捉子情况还没有记录，并且裁决可能用到它（将军的着法不必再看捉子）
+     */
+    public boolean needsChase(int index) {
+        return chases[index] == CHASE_UNKNOWN && checkRuns[index] == 0;
+    }
+
+    /**
+     * 补记第 index 着是否捉子
+     */
+    public void attributeChase(int index, boolean chase) {
+        chases[index] = chase ? CHASE_YES : CHASE_NO;
+    }
+
+    /**
+     * 撤销最后一着
+     */
+    public void pop() {
+        size--;
+        filter[(int) keys[size] & FILTER_MASK]--;
+    }
+
+    /**
+     * 最后一个局面有没有可能与之前的局面重复（O(1)，返回 true 时仍需 adjudicate 确认）
+     */
+    public boolean mayRepeat() {
+        return filter[(int) keys[size - 1] & FILTER_MASK] > 1;
+    }
+
+    /**
+     * 最后一个局面此前出现过的次数（同一方走棋，且不早于最近一次吃子）
+     */
+    public int repetitionCount() {
+        int last = size - 1;
+        int count = 0;
+        if (!mayRepeat()) {
+            return 0;
+        }
+        for (int i = last - 2; i >= floors[last]; i -= 2) {
+            if (keys[i] == keys[last]) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 最近一次与最后一个局面相同的局面的下标，没有时返回 -1；循环由它之后的各着组成
+     */
+    public int cycleStart() {
+        if (!mayRepeat()) {
+            return -1;
+        }
+        int last = size - 1;
+        for (int i = last - 2; i >= floors[last]; i -= 2) {
+            if (keys[i] == keys[last]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 按最近的一次循环裁决；循环内未记录捉子的着法按不捉处理
+     */
+    public Verdict adjudicate() {
+        int start = cycleStart();
+        if (start < 0) {
+            return Verdict.NONE;
+        }
+        int last = size - 1;
+        // 循环里双方各走了 (last - start) / 2 着，连续着数覆盖整个循环就是“长”
+        int moves = (last - start) / 2;
+        boolean moverChecks = checkRuns[last] >= moves;
+        boolean opponentChecks = checkRuns[last - 1] >= moves;
+        if (moverChecks != opponentChecks) {
+            return moverChecks ? Verdict.MOVER_LOSES : Verdict.MOVER_WINS;
+        }
+        if (moverChecks) {
+            return Verdict.DRAW;
+        }
+        boolean moverAttacks = attacksThroughout(last, start);
+        boolean opponentAttacks = attacksThroughout(last - 1, start);
+        if (moverAttacks != opponentAttacks) {
+            return moverAttacks ? Verdict.MOVER_LOSES : Verdict.MOVER_WINS;
+        }
+        return Verdict.DRAW;
+    }
+
+    /**
+     * 从第 index 着往前隔着数到 start 为止，这一方的每一着都是将军或捉子
+     */
+    private boolean attacksThroughout(int index, int start) {
+        for (int i = index; i > start; i -= 2) {
+            if (checkRuns[i] == 0 && chases[i] != CHASE_YES) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 最后一个局面的键
+     */
+    public long lastKey() {
+        return keys[size - 1];
+    }
+
+    /**
+     * 记录的局面数（含起始局面）
+     */
+    public int size() {
+        return size;
+    }
+
+    public RepetitionAdjudicator copy() {
+        RepetitionAdjudicator copy = new RepetitionAdjudicator(0L);
+        copy.keys = Arrays.copyOf(keys, keys.length);
+        copy.checkRuns = Arrays.copyOf(checkRuns, checkRuns.length);
+        copy.chases = Arrays.copyOf(chases, chases.length);
+        copy.floors = Arrays.copyOf(floors, floors.length);
+        copy.size = size;
+        System.arraycopy(filter, 0, copy.filter, 0, FILTER_SIZE);
+        return copy;
+    }
+
+    /**
+     * 刚走到 square 的棋子是否在捉子：它能吃到对方一个无根的子，或者以马、炮捉车
+     * 将帅和兵卒捉子不算捉，被捉的将帅算将军，不在此列；未过河的兵卒不算被捉
+     * 调用时棋盘处于走完这一着之后的状态，棋盘不会被修改
+     */
+    public static boolean isChase(ChessBoardModel model, int square) {
+        return isChase(model, square, new int[AbstractPiece.MAX_TARGETS], new StaticExchange(model));
+    }
+
+    /**
+     * 同 isChase(model, square)，由调用方提供目标格缓冲区（长度不小于 AbstractPiece.MAX_TARGETS）
+     * 和同一棋盘上的 StaticExchange（用来反查保护者），搜索中使用
+     */
+    public static boolean isChase(ChessBoardModel model, int square, int[] targets, StaticExchange exchange) {
+        AbstractPiece attacker = model.getPieceAt(square);
+        if (attacker == null || attacker.getType() == PieceType.GENERAL || attacker.getType() == PieceType.SOLDIER) {
+            return false;
+        }
+        int count = attacker.generateMoves(model, targets, 0);
+        for (int i = 0; i < count; i++) {
+            AbstractPiece target = model.getPieceAt(targets[i]);
+            if (target == null || target.getType() == PieceType.GENERAL
+                    || (target.getType() == PieceType.SOLDIER && !hasCrossedRiver(target))) {
+                continue;
+            }
+            if (target.getType() == PieceType.CAR && attacker.getType() != PieceType.CAR) {
+                return true;
+            }
+            // 有根：捉子的一方吃过去之后（它原来的格子空出），被捉一方能吃回来
+            if (!exchange.isAttacked(targets[i], square, target.isRed())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean hasCrossedRiver(AbstractPiece soldier) {
+        return soldier.isRed() ? soldier.getRow() <= 4 : soldier.getRow() >= 5;
+    }
+}
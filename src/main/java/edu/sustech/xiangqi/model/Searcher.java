@@ -0,0 +1,938 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BooleanSupplier;
+
+/**
+ * AI 搜索器：在沙盒 GameLogicModel 上做主要变例搜索 (PVS)，即零窗口的 negamax Alpha-Beta
+ * 搜索路径只使用整数走法 (Move.encode) 和按层预分配的分阶段走法选择器 (MovePicker)，稳定运行时不再创建对象
+ * 置换表由调用方持有，可跨多次搜索复用
+ */
+public class Searcher {
+    public static final int MATE_SCORE = 1000000;
+    static final int INFINITY = 10000000;
+    static final int MAX_PLY = 128;
+    private static final int MAX_MOVES = 128; // 单个局面的伪合法走法数不会超过这个值
+    private static final int CHECK_INTERVAL = 1023; // 每隔多少个节点检查一次预算
+    private static final int DELTA_MARGIN = 200; // delta 剪枝的余量，覆盖位置分的变化
+    private static final int NULL_MOVE_MIN_DEPTH = 3;
+    private static final int LMR_MIN_DEPTH = 3;
+    private static final int LMR_MIN_MOVES = 3; // 前几个走法不裁剪
+    static final int ASPIRATION_WINDOW = 50; // 渴望窗口的初始半宽
+    static final int ASPIRATION_MIN_DEPTH = 4; // 浅层分数不稳定，不用渴望窗口
+    private static final int SEE_PRUNE_DEPTH = 2; // 剩余深度不超过该值时跳过亏子的吃子
+    static final int CHECK_EXTENSION_FACTOR = 2; // 将军延伸只在不超过本次深度这么多倍的层数内进行
+    // 将死的分数按步数折算：在第 ply 层被将死记为 -(MATE_SCORE - ply)，越快将死分数越高
+    // 长将判负的分数同样按步数折算：高于任何局面分，但低于将死。赢棋的一方先找将死，找不到才逼对方长将；
+    // 输棋的一方宁可走向长将判负的变例也不直接被将死——实战里违规的那一着会被 tryMove 拒绝，只能变着，多拖几步
+    static final int BAN_SCORE = MATE_SCORE - 1000;
+    // 绝对值不低于它的分数是将死或长将判负，与到达的步数有关，存入置换表时要换算成相对当前局面的步数
+    static final int WIN_BOUND = BAN_SCORE - MAX_PLY;
+    private static final int DRAW_SCORE = 0;
+    static final int NO_REPETITION = Integer.MIN_VALUE;
+
+    private final GameLogicModel logic;
+    private final TranspositionTable transTable;
+    // 根节点的走法列表（整体排序），其余每一层一个走法选择器，递归时按 ply 取用
+    private final int[] rootMoves = new int[MAX_MOVES];
+    private final int[] rootScores = new int[MAX_MOVES];
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY];
+    private final MoveOrderer orderer;
+    private final StaticExchange exchange;
+    // 三角形主要变例表：pvTable[ply] 的 [ply, pvLength[ply]) 是从该层开始的最佳走法序列
+    private final int[][] pvTable = new int[MAX_PLY][MAX_PLY];
+    private final int[] pvLength = new int[MAX_PLY];
+    private final Random random = new Random();
+    // 对局历史加上当前搜索路径的重复局面记录，每次搜索开始时从对局复制
+    private RepetitionAdjudicator adjudicator;
+    private final int[] pathMoves = new int[MAX_PLY]; // 走到每一层的那一着，空着为 0
+    private int pathStartPly; // 搜索路径从这一层开始，更早的着法属于对局历史
+    private int pathPly; // followPath 走到的层数
+    private final int[] chaseTargets = new int[AbstractPiece.MAX_TARGETS];
+    private long nodes;
+    // 迭代加深的预算和状态
+    private long deadline;
+    private long nodeLimit;
+    private boolean stopped;
+    // 其他线程发出的停止请求，在检查预算时一并读取；一旦发出就不再撤销
+    private volatile boolean stopRequested;
+    // 外部设置的绝对截止时间（后台思考命中后才定下来），不随每次搜索重置
+    private volatile long stopDeadline = Long.MAX_VALUE;
+    // 并行搜索中的线程编号，0 为主线程，其余为辅助线程
+    private int threadIndex;
+    // 外部的停止条件（例如并行搜索里兄弟节点已经截断），为 null 表示没有
+    private BooleanSupplier stopCondition;
+    private int completedDepth;
+    private PrincipalVariation principalVariation; // 最后一个完整迭代的主要变例
+    // 超过这一层就不再做将军延伸，避免连续将军把搜索拖得太深
+    private int extensionLimit;
+    // 剪枝开关，按难度配置
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    // 根节点走法是否先随机打乱：对弈时让 AI 更多变，复盘等需要可重复结果时关闭
+    private boolean shuffleRootMoves = true;
+
+    public Searcher(GameLogicModel logic, TranspositionTable transTable) {
+        this.logic = logic;
+        this.transTable = transTable;
+        this.exchange = new StaticExchange(logic.getModel());
+        this.orderer = new MoveOrderer(MAX_PLY, exchange);
+        for (int ply = 0; ply < MAX_PLY; ply++) {
+            pickers[ply] = new MovePicker(logic, orderer);
+        }
+    }
+
+    public void setNullMovePruning(boolean nullMovePruning) {
+        this.nullMovePruning = nullMovePruning;
+    }
+
+    public void setLateMoveReductions(boolean lateMoveReductions) {
+        this.lateMoveReductions = lateMoveReductions;
+    }
+
+    /**
+     * 关闭后根节点走法不再随机打乱，同一局面、同样的置换表状态下 findBestMove 和 analyze 的结果可以重复
+     */
+    public void setShuffleRootMoves(boolean shuffleRootMoves) {
+        this.shuffleRootMoves = shuffleRootMoves;
+    }
+
+    /**
+     * Lazy SMP 中的线程编号：辅助线程不推进置换表的代数，并且奇数号线程从第 2 层开始迭代，
+     * 与主线程错开深度，让各线程搜到不同的子树再通过共享置换表互相利用
+     */
+    public void setThreadIndex(int threadIndex) {
+        this.threadIndex = threadIndex;
+    }
+
+    /**
+     * 设置绝对截止时间（System.currentTimeMillis 的值），可在搜索进行中从其他线程调用
+     */
+    public void setDeadline(long deadline) {
+        this.stopDeadline = deadline;
+    }
+
+    /**
+     * 设置额外的停止条件，与时间和节点预算一起定期检查
+     */
+    void setStopCondition(BooleanSupplier stopCondition) {
+        this.stopCondition = stopCondition;
+    }
+
+    /**
+     * 请求停止搜索（可从其他线程调用），正在进行的搜索会在下一次检查预算时结束
+     * 停止请求不会撤销，本搜索器之后的搜索也会立即结束
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * 固定深度搜索（仍按迭代加深逐层进行）
+     * @return 最佳走法，没有可走的棋时返回 null
+     */
+    public Move findBestMove(int depth) {
+        return findBestMove(depth, 0, 0);
+    }
+
+    /**
+     * 迭代加深搜索：从 1 层开始逐层加深，直到达到最大深度或用完时间/节点预算
+     * 预算用完时丢弃未完成的那一层，返回最后一个完整迭代的最佳走法；
+     * 上一层的最佳走法会排到下一层的最前面（根节点直接前移，其余节点经由置换表）
+     * @param maxDepth 最大深度
+     * @param timeLimitMs 时间预算（毫秒），0 表示不限
+     * @param nodeLimit 节点预算，0 表示不限
+     * @return 最佳走法，没有可走的棋时返回 null
+     */
+    public Move findBestMove(int maxDepth, long timeLimitMs, long nodeLimit) {
+        startSearch(timeLimitMs, nodeLimit);
+        int[] moves = rootMoves;
+        int count = generateRootMoves(moves);
+        if (count == 0) {
+            return null;
+        }
+        int score = 0;
+        for (int depth = 1 + threadIndex % 2; depth <= maxDepth; depth++) {
+            score = searchWithAspiration(moves, count, depth, score);
+            if (stopped) {
+                break;
+            }
+            completedDepth = depth;
+            principalVariation = new PrincipalVariation(Arrays.copyOf(pvTable[0], pvLength[0]), score, depth);
+            moveToFront(moves, count, pvTable[0][0]);
+            // 已经在搜索范围内找到将死（或被将死），更深的迭代不会改变结论，不再消耗时间
+            if (isMateWithin(score, depth)) {
+                break;
+            }
+        }
+        return logic.toMove(principalVariation != null ? principalVariation.getFirstMove() : moves[0]);
+    }
+
+    /**
+     * 多主要变例分析：在同一次迭代加深搜索里给出最好的 multiPv 个根节点走法，各自带分数和主要变例（提示、复盘用）
+     * 预算的含义与 findBestMove 相同，getPrincipalVariation 返回其中第一名
+     * 迭代从第 1 层开始、不用渴望窗口，所以 multiPv 为 1 时节点数、以及同分走法中选哪一个都可能与 findBestMove 不同；
+     * 批量复盘需要可重复的结果时先调用 setShuffleRootMoves(false)
+     * @param multiPv 需要的走法个数
+     * @return 按分数从高到低排列的变例，最多 multiPv 个（不超过合法走法数）；没有可走的棋时为空列表
+     */
+    public List<PrincipalVariation> analyze(int multiPv, int maxDepth, long timeLimitMs, long nodeLimit) {
+        startSearch(timeLimitMs, nodeLimit);
+        int[] moves = rootMoves;
+        int count = generateRootMoves(moves);
+        if (count == 0 || multiPv <= 0) {
+            return Collections.emptyList();
+        }
+        multiPv = Math.min(multiPv, count);
+        int[] scores = new int[count];
+        boolean[] exact = new boolean[count];
+        int[][] pvs = new int[count][];
+        List<PrincipalVariation> lines = Collections.emptyList();
+        for (int depth = 1; depth <= maxDepth; depth++) {
+            searchRootMultiPv(moves, count, depth, multiPv, scores, exact, pvs);
+            if (stopped) {
+                break;
+            }
+            completedDepth = depth;
+            sortRootLines(moves, scores, exact, pvs, count);
+            lines = new ArrayList<>(multiPv);
+            boolean solved = true;
+            for (int i = 0; i < multiPv; i++) {
+                lines.add(new PrincipalVariation(pvs[i], scores[i], depth));
+                solved &= isMateWithin(scores[i], depth);
+            }
+            principalVariation = lines.get(0);
+            if (solved) {
+                break;
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * 搜索开始前重置预算和排序状态，并载入对局的重复局面记录
+     */
+    private void startSearch(long timeLimitMs, long nodeLimit) {
+        nodes = 0;
+        completedDepth = 0;
+        principalVariation = null;
+        stopped = false;
+        deadline = timeLimitMs > 0 ? System.currentTimeMillis() + timeLimitMs : Long.MAX_VALUE;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        if (threadIndex == 0) {
+            transTable.newSearch();
+        }
+        orderer.newSearch();
+        loadRepetitionHistory(0);
+    }
+
+    /**
+     * 多主要变例的一次根节点搜索，每个根走法用自己的窗口：
+     * 已有 multiPv 个准确分数时，以其中最低的分数为 alpha 先做零窗口搜索，证明挤不进前 multiPv 名就只留下这个上界；
+     * 能挤进去的再以 (alpha, +∞) 重搜，拿到准确分数和变例。只有前几名要完整搜索，代价远小于 multiPv 次独立搜索
+     * 结果写入 scores、exact（分数是否准确）和 pvs（准确时的变例）
+     */
+    private void searchRootMultiPv(int[] moves, int count, int depth, int multiPv,
+                                   int[] scores, boolean[] exact, int[][] pvs) {
+        // 目前为止最高的 multiPv 个准确分数，从高到低
+        int[] best = new int[multiPv];
+        int bestCount = 0;
+        int bestMove = 0;
+        extensionLimit = CHECK_EXTENSION_FACTOR * depth;
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int alpha = bestCount == multiPv ? best[multiPv - 1] : -INFINITY;
+            logic.makeMove(move);
+            pathMoves[1] = move;
+            adjudicator.push(logic.getZobristKey(), Move.isCapture(move));
+            int newDepth = depth - 1 + (logic.isChecked(logic.isRedTurn()) ? 1 : 0); // 将军延伸
+            int value;
+            if (alpha == -INFINITY) {
+                value = -negamax(newDepth, -INFINITY, INFINITY, 1, true);
+            } else {
+                value = -negamax(newDepth, -alpha - 1, -alpha, 1, true);
+                if (value > alpha && !stopped) {
+                    value = -negamax(newDepth, -INFINITY, -alpha, 1, true);
+                }
+            }
+            adjudicator.pop();
+            logic.unmakeMove(move);
+            if (stopped) {
+                return;
+            }
+
+            scores[i] = value;
+            exact[i] = value > alpha;
+            pvs[i] = null;
+            if (exact[i]) {
+                updatePv(0, move);
+                pvs[i] = Arrays.copyOf(pvTable[0], pvLength[0]);
+                // 插入前 multiPv 名，挤掉最后一名
+                int j = Math.min(bestCount, multiPv - 1);
+                while (j > 0 && best[j - 1] < value) {
+                    best[j] = best[j - 1];
+                    j--;
+                }
+                best[j] = value;
+                bestCount = Math.min(bestCount + 1, multiPv);
+                if (j == 0) {
+                    bestMove = move;
+                }
+            }
+        }
+        transTable.store(logic.getZobristKey(), depth, TranspositionTable.EXACT, scoreToTable(best[0], 0), bestMove);
+    }
+
+    /**
+     * 按分数从高到低稳定排序根走法，准确分数排在只有上界的之前；下一层按这个顺序搜索
+     */
+    private static void sortRootLines(int[] moves, int[] scores, boolean[] exact, int[][] pvs, int count) {
+        for (int i = 1; i < count; i++) {
+            int move = moves[i];
+            int score = scores[i];
+            boolean isExact = exact[i];
+            int[] pv = pvs[i];
+            int j = i - 1;
+            while (j >= 0 && (exact[j] != isExact ? isExact : scores[j] < score)) {
+                moves[j + 1] = moves[j];
+                scores[j + 1] = scores[j];
+                exact[j + 1] = exact[j];
+                pvs[j + 1] = pvs[j];
+                j--;
+            }
+            moves[j + 1] = move;
+            scores[j + 1] = score;
+            exact[j + 1] = isExact;
+            pvs[j + 1] = pv;
+        }
+    }
+
+    /**
+     * 分数是否是 depth 层以内就能分出结果的将死
+     */
+    private static boolean isMateWithin(int score, int depth) {
+        return Math.abs(score) > BAN_SCORE && MATE_SCORE - Math.abs(score) <= depth;
+    }
+
+    /**
+     * 以上一层的分数为中心开一个渴望窗口搜索根节点，落在窗口外时向失败的一侧加倍放宽后重搜
+     */
+    private int searchWithAspiration(int[] moves, int count, int depth, int previousScore) {
+        int window = ASPIRATION_WINDOW;
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        if (depth >= ASPIRATION_MIN_DEPTH && Math.abs(previousScore) < WIN_BOUND) {
+            alpha = previousScore - window;
+            beta = previousScore + window;
+        }
+        while (true) {
+            int score = searchRoot(moves, count, depth, alpha, beta);
+            if (stopped) {
+                return 0;
+            }
+            if (score <= alpha && alpha > -INFINITY) {
+                alpha = Math.max(score - window, -INFINITY);
+            } else if (score >= beta && beta < INFINITY) {
+                beta = Math.min(score + window, INFINITY);
+                // 在窗口上沿截断的走法更好，重搜时先搜它
+                moveToFront(moves, count, pvTable[0][0]);
+            } else {
+                return score;
+            }
+            window *= 2;
+        }
+    }
+
+    /**
+     * 根节点的一次搜索：第一个走法用完整窗口，其余先用零窗口证明不比它好，失败再用完整窗口重搜
+     * @return 根节点分数；超出 [alpha, beta] 时只是一个边界；搜索中途被打断时返回值无效
+     */
+    private int searchRoot(int[] moves, int count, int depth, int alpha, int beta) {
+        int originalAlpha = alpha;
+        int bestValue = -INFINITY;
+        int bestMove = 0;
+        pvLength[0] = 0;
+        extensionLimit = CHECK_EXTENSION_FACTOR * depth;
+
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            logic.makeMove(move);
+            pathMoves[1] = move;
+            adjudicator.push(logic.getZobristKey(), Move.isCapture(move));
+            int newDepth = depth - 1 + (logic.isChecked(logic.isRedTurn()) ? 1 : 0); // 将军延伸
+            int value;
+            if (i == 0) {
+                value = -negamax(newDepth, -beta, -alpha, 1, true);
+            } else {
+                value = -negamax(newDepth, -alpha - 1, -alpha, 1, true);
+                if (value > alpha && value < beta && !stopped) {
+                    value = -negamax(newDepth, -beta, -alpha, 1, true);
+                }
+            }
+            adjudicator.pop();
+            logic.unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = move;
+                if (i == 0 || value > alpha) {
+                    updatePv(0, move);
+                }
+            }
+            if (value > alpha) {
+                alpha = value;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        int flag = bestValue <= originalAlpha ? TranspositionTable.UPPER
+                : bestValue >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        transTable.store(logic.getZobristKey(), depth, flag, scoreToTable(bestValue, 0), bestMove);
+        return bestValue;
+    }
+
+    /**
+     * 把 move 接上下一层的主要变例，作为 ply 层的主要变例
+     */
+    private void updatePv(int ply, int move) {
+        int[] pv = pvTable[ply];
+        pv[ply] = move;
+        int childLength = pvLength[ply + 1];
+        System.arraycopy(pvTable[ply + 1], ply + 1, pv, ply + 1, childLength - ply - 1);
+        pvLength[ply] = Math.max(childLength, ply + 1);
+    }
+
+    // ---- 以下供 YbwcSearch 的工作线程使用：每个线程一个搜索器，沿从根出发的走法路径走到要搜索的节点 ----
+
+    /**
+     * 工作线程的搜索器在根局面上调用一次：清空排序状态并载入对局的重复局面记录，路径回到根节点
+     */
+    void beginPathSearch() {
+        orderer.newSearch();
+        loadRepetitionHistory(0);
+        pathPly = 0;
+    }
+
+    /**
+     * 把棋盘从当前路径调整到 path[1..ply] 所走到的局面：先退回到两条路径的公共前缀，再走出其余着法
+     * 重复局面记录随之出栈、入栈，所以整条路径上的循环和长将、长捉在子树里仍能被发现
+     */
+    void followPath(int[] path, int ply) {
+        int common = 0;
+        while (common < pathPly && common < ply && pathMoves[common + 1] == path[common + 1]) {
+            common++;
+        }
+        while (pathPly > common) {
+            adjudicator.pop();
+            logic.unmakeMove(pathMoves[pathPly--]);
+        }
+        while (pathPly < ply) {
+            int move = path[++pathPly];
+            logic.makeMove(move);
+            pathMoves[pathPly] = move;
+            adjudicator.push(logic.getZobristKey(), Move.isCapture(move));
+            adjudicator.attributeCheck(logic.isChecked(logic.isRedTurn()));
+        }
+    }
+
+    /**
+     * 在路径终点上搜索之前重置节点数和停止状态
+     * @param extensionLimit 超过这一层不再做将军延伸，整棵树用同一个值
+     */
+    void prepareSubtree(long deadline, int extensionLimit) {
+        nodes = 0;
+        stopped = false;
+        this.deadline = deadline;
+        this.nodeLimit = Long.MAX_VALUE;
+        this.extensionLimit = extensionLimit;
+    }
+
+    /**
+     * 从路径终点开始做一次固定深度的串行搜索（先调用 prepareSubtree）
+     * @return 站在当前走棋方角度的分数；被停止时返回值无效，需用 wasStopped 判断
+     */
+    int searchSubtree(int depth, int alpha, int beta) {
+        return negamax(depth, alpha, beta, pathPly, true);
+    }
+
+    /**
+     * 路径终点与路径或对局历史里的局面重复时的分数，没有重复时返回 NO_REPETITION
+     */
+    int repetitionScoreAtPath() {
+        return adjudicator.mayRepeat() ? repetitionScore(pathPly) : NO_REPETITION;
+    }
+
+    /**
+     * 按 negamax 里走法选择器给出的顺序列出路径终点的全部合法走法
+     * @param quiet 写入每个走法是否可以做晚走法裁剪（见 MovePicker.isQuiet）
+     * @return 走法数量
+     */
+    int generateOrderedMoves(int[] moves, boolean[] quiet, int ttMove) {
+        MovePicker picker = pickers[pathPly];
+        picker.reset(ttMove, pathPly, false);
+        int count = 0;
+        for (int move = picker.next(); move != 0; move = picker.next()) {
+            quiet[count] = picker.isQuiet();
+            moves[count++] = move;
+        }
+        return count;
+    }
+
+    /**
+     * 拆分节点在子任务都完成后记录截断走法，这时棋盘可能已经被别的任务走到其他路径上，所以由调用方给出层数
+     */
+    void recordCutoff(int move, int depth, int ply) {
+        orderer.recordCutoff(move, depth, ply);
+    }
+
+    boolean isInCheck() {
+        return logic.isChecked(logic.isRedTurn());
+    }
+
+    boolean wasStopped() {
+        return stopped;
+    }
+
+    /**
+     * 生成根节点走法：只保留合法且不违反长将/重复规则的走法，并做初始排序
+     */
+    int generateRootMoves(int[] moves) {
+        int count = logic.generateLegalMoves(moves);
+        int legal = 0;
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            if (!logic.isProhibitedMove(logic.toMove(move))) {
+                moves[legal++] = move;
+            }
+        }
+        orderRootMoves(moves, legal);
+        return legal;
+    }
+
+    /**
+     * 最后一个完整完成的迭代深度
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    /**
+     * 最后一个完整迭代的主要变例，还没有完成任何一层时返回 null
+     */
+    public PrincipalVariation getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * negamax 递归函数，返回值始终站在当前走棋方的角度
+     * @param allowNull 是否允许空着裁剪（不连续走两次空着）
+     */
+    private int negamax(int depth, int alpha, int beta, int ply, boolean allowNull) {
+        pvLength[ply] = ply;
+        nodes++;
+        if ((nodes & CHECK_INTERVAL) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluate();
+        }
+
+        // 重复局面：当前路径或对局历史里出现过同一局面（同一方走棋），按长将、长捉规则直接给出分数
+        if (adjudicator.mayRepeat()) {
+            int repetition = repetitionScore(ply);
+            if (repetition != NO_REPETITION) {
+                return repetition;
+            }
+        }
+        // 将死步数剪枝：这里最好也只能在下一步将死对方，最差是在这一步被将死，窗口超出这个范围就不必搜索
+        alpha = Math.max(alpha, -MATE_SCORE + ply);
+        beta = Math.min(beta, MATE_SCORE - ply - 1);
+        if (alpha >= beta) {
+            return alpha;
+        }
+        if (depth <= 0) {
+            return quiesce(alpha, beta, ply);
+        }
+
+        // 零窗口节点（非主要变例节点）才会被证明比已有走法更好或更差，这类节点才做截断和裁剪
+        boolean pvNode = beta - alpha > 1;
+
+        // 查置换表：深度足够时直接利用边界截断，否则至少拿到最佳走法用于排序
+        // 主要变例节点不截断，保证能收集到完整的变例
+        long key = logic.getZobristKey();
+        long entry = transTable.probe(key);
+        if (!pvNode && entry != 0 && TranspositionTable.depth(entry) >= depth) {
+            int score = scoreFromTable(TranspositionTable.score(entry), ply);
+            int flag = TranspositionTable.flag(entry);
+            if (flag == TranspositionTable.EXACT
+                    || (flag == TranspositionTable.LOWER && score >= beta)
+                    || (flag == TranspositionTable.UPPER && score <= alpha)) {
+                return score;
+            }
+        }
+
+        // 走法选择器顺带算出是否被将军以及本局面的牵制，之后给出的走法都已合法
+        MovePicker picker = pickers[ply];
+        picker.reset(TranspositionTable.move(entry), ply, false);
+        boolean inCheck = picker.isInCheck();
+        adjudicator.attributeCheck(inCheck);
+
+        // 空着裁剪：让对方连走两步仍然 >= beta，说明局面足够好，可以直接截断
+        if (allowNull && !pvNode && !inCheck) {
+            int value = nullMoveScore(depth, beta, ply, TranspositionTable.move(entry));
+            if (stopped) {
+                return 0;
+            }
+            if (value != -INFINITY) {
+                return value;
+            }
+        }
+
+        int originalAlpha = alpha;
+        int bestValue = -INFINITY;
+        int bestMove = 0;
+        int legalMoves = 0;
+
+        for (int move = picker.next(); move != 0; move = picker.next()) {
+            boolean quiet = picker.isQuiet();
+            // 浅层的非主要变例节点跳过亏子的吃子（吃完能将军的除外）
+            boolean losingCapture = !pvNode && !inCheck && depth <= SEE_PRUNE_DEPTH && legalMoves > 0
+                    && picker.isLosingCapture();
+            logic.makeMove(move);
+            boolean givesCheck = logic.isChecked(logic.isRedTurn());
+            if (losingCapture && !givesCheck) {
+                logic.unmakeMove(move);
+                continue;
+            }
+            legalMoves++;
+            pathMoves[ply + 1] = move;
+            adjudicator.push(logic.getZobristKey(), Move.isCapture(move));
+            // 将军延伸：将军的走法多搜一层，让将杀和应将在搜索范围内分出结果
+            int newDepth = depth - 1 + (givesCheck && ply < extensionLimit ? 1 : 0);
+            int value;
+            if (legalMoves == 1) {
+                value = -negamax(newDepth, -beta, -alpha, ply + 1, true);
+            } else {
+                // 晚走法裁剪：排在后面的普通走法先用较浅的零窗口搜索，超过 alpha 再按全深度重搜
+                int reduction = quiet && !inCheck && !givesCheck ? lateMoveReduction(depth, legalMoves) : 0;
+                value = -negamax(newDepth - reduction, -alpha - 1, -alpha, ply + 1, true);
+                if (value > alpha && reduction > 0 && !stopped) {
+                    value = -negamax(newDepth, -alpha - 1, -alpha, ply + 1, true);
+                }
+                // 零窗口证明它可能更好，主要变例节点再用完整窗口搜一次拿到准确分数
+                if (value > alpha && value < beta && !stopped) {
+                    value = -negamax(newDepth, -beta, -alpha, ply + 1, true);
+                }
+            }
+            adjudicator.pop();
+            logic.unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = move;
+            }
+            if (bestValue > alpha) {
+                alpha = bestValue;
+                updatePv(ply, move);
+            }
+            if (alpha >= beta) {
+                orderer.recordCutoff(move, depth, ply);
+                break;
+            }
+        }
+
+        if (legalMoves == 0) {
+            // 无棋可走：被将死或困毙，象棋规则下都判走棋方负；越晚被将死越好
+            return -MATE_SCORE + ply;
+        }
+        int flag = bestValue <= originalAlpha ? TranspositionTable.UPPER
+                : bestValue >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        transTable.store(key, depth, flag, scoreToTable(bestValue, ply), flag == TranspositionTable.UPPER ? 0 : bestMove);
+        return bestValue;
+    }
+
+    /**
+     * 晚走法裁剪减少的层数（调用方保证这一着是普通走法或亏子的吃子，走之前和走之后都没有将军）
+     * @param moveNumber 这一着是本节点的第几个走法，从 1 开始
+     */
+    int lateMoveReduction(int depth, int moveNumber) {
+        if (!lateMoveReductions || depth < LMR_MIN_DEPTH || moveNumber <= LMR_MIN_MOVES) {
+            return 0;
+        }
+        return moveNumber > 6 && depth >= 6 ? 2 : 1;
+    }
+
+    /**
+     * 空着裁剪（调用方保证不是主要变例节点、没有被将军、上一着不是空着）：让对方连走两步仍然 >= beta 就可以截断
+     * 残局子力少时容易出现“等着”反而最好的局面，用不带空着的浅层搜索验证一遍；
+     * 验证搜索在同一层用过了走法选择器，之后按 ttMove 重新开始
+     * @return 可以截断时返回截断分数，否则返回 -INFINITY；被停止时返回值无效
+     */
+    int nullMoveScore(int depth, int beta, int ply, int ttMove) {
+        if (!nullMovePruning || depth < NULL_MOVE_MIN_DEPTH || beta >= WIN_BOUND
+                || !hasNullMoveMaterial() || evaluate() < beta) {
+            return -INFINITY;
+        }
+        int reduction = depth >= 6 ? 3 : 2;
+        logic.changeTurn();
+        pathMoves[ply + 1] = 0;
+        adjudicator.push(logic.getZobristKey(), true);
+        int value = -negamax(depth - 1 - reduction, -beta, -beta + 1, ply + 1, false);
+        adjudicator.pop();
+        logic.changeTurn();
+        if (stopped || value < beta) {
+            return -INFINITY;
+        }
+        if (isLowMaterial()) {
+            boolean verified = negamax(depth - 1 - reduction, beta - 1, beta, ply, false) >= beta;
+            pickers[ply].reset(ttMove, ply, false);
+            if (stopped || !verified) {
+                return -INFINITY;
+            }
+        }
+        return value >= WIN_BOUND ? beta : value;
+    }
+
+    /**
+     * 静态搜索：在叶子节点继续搜索吃子，直到局面平静，避免在车被捉等不稳定局面直接估值
+     * 被将军时不能“站着不动”，改为搜索全部应将走法
+     */
+    private int quiesce(int alpha, int beta, int ply) {
+        pvLength[ply] = ply;
+        nodes++;
+        if ((nodes & CHECK_INTERVAL) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        if (ply >= MAX_PLY - 1) {
+            return evaluate();
+        }
+
+        // 不被将军时只搜不亏的吃子，亏子的吃子不再搜索；被将军时搜索全部应将走法
+        MovePicker picker = pickers[ply];
+        picker.reset(0, ply, true);
+        boolean inCheck = picker.isInCheck();
+        int standPat = 0;
+        if (!inCheck) {
+            // stand-pat：不吃子时的局面分就是下界
+            standPat = evaluate();
+            if (standPat >= beta) {
+                return standPat;
+            }
+            // 吃掉最大的子也追不上 alpha，直接放弃
+            if (standPat + EvaluationTables.CAR_VALUE + DELTA_MARGIN <= alpha) {
+                return standPat;
+            }
+            if (standPat > alpha) {
+                alpha = standPat;
+            }
+        }
+
+        int bestValue = inCheck ? -INFINITY : standPat;
+        int legalMoves = 0;
+
+        for (int move = picker.next(); move != 0; move = picker.next()) {
+            // delta 剪枝：吃掉这个子再加上余量仍不超过 alpha，跳过
+            if (!inCheck && Move.isCapture(move)
+                    && standPat + EvaluationTables.BASE_VALUES[Move.captured(move)] + DELTA_MARGIN <= alpha) {
+                continue;
+            }
+            logic.makeMove(move);
+            legalMoves++;
+            int value = -quiesce(-beta, -alpha, ply + 1);
+            logic.unmakeMove(move);
+            if (stopped) {
+                return 0;
+            }
+
+            if (value > bestValue) {
+                bestValue = value;
+            }
+            if (bestValue > alpha) {
+                alpha = bestValue;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+
+        if (inCheck && legalMoves == 0) {
+            return -MATE_SCORE + ply;
+        }
+        return bestValue;
+    }
+
+    /**
+     * 复制对局的重复局面记录，作为本次搜索路径的起点
+     * 从子树开始搜索时（startPly > 0）根节点到这里的路径未知，把当前局面当作不可逆的起点，循环不会跨过它
+     */
+    private void loadRepetitionHistory(int startPly) {
+        adjudicator = logic.getAdjudicator().copy();
+        long key = logic.getZobristKey();
+        if (startPly > 0 || adjudicator.lastKey() != key) {
+            adjudicator.push(key, true);
+        }
+        pathMoves[startPly] = 0;
+        pathStartPly = startPly;
+    }
+
+    /**
+     * 当前局面与路径或对局历史里的局面重复时，按长将、长捉规则给出分数
+     * 捉子只在真的出现循环时才判定，而且只看循环里的着法
+     * @return 站在当前走棋方角度的分数，没有重复时返回 NO_REPETITION
+     */
+    private int repetitionScore(int ply) {
+        adjudicator.attributeCheck(logic.isChecked(logic.isRedTurn()));
+        int start = adjudicator.cycleStart();
+        if (start < 0) {
+            return NO_REPETITION;
+        }
+        resolveChases(ply, start);
+        switch (adjudicator.adjudicate()) {
+            case MOVER_LOSES:
+                return BAN_SCORE - ply;
+            case MOVER_WINS:
+                return -BAN_SCORE + ply;
+            case DRAW:
+                return DRAW_SCORE;
+            default:
+                return NO_REPETITION;
+        }
+    }
+
+    /**
+     * 补上循环里搜索路径上各着是否捉子：沿路径逐着退回到那一着刚走完的局面判定，最后再走回当前局面
+     * 循环里没有吃子和空着（它们不可逆），退回、重走不会改变棋子列表的顺序；对局历史里的着法落子时已经记录
+     */
+    private void resolveChases(int ply, int start) {
+        int index = adjudicator.size() - 1;
+        int undone = ply;
+        for (int q = ply; q > pathStartPly && index > start; q--, index--) {
+            if (!adjudicator.needsChase(index)) {
+                continue;
+            }
+            while (undone > q) {
+                logic.unmakeMove(pathMoves[undone--]);
+            }
+            adjudicator.attributeChase(index,
+                    RepetitionAdjudicator.isChase(logic.getModel(), Move.to(pathMoves[q]), chaseTargets, exchange));
+        }
+        while (undone < ply) {
+            logic.makeMove(pathMoves[++undone]);
+        }
+    }
+
+    /**
+     * 将死类分数存入置换表时换算成“从当前局面起多少步”，取出时再按所在的层换算回“从根节点起多少步”，
+     * 同一局面在不同层命中时步数才正确
+     */
+    static int scoreToTable(int score, int ply) {
+        if (score >= WIN_BOUND) {
+            return score + ply;
+        }
+        if (score <= -WIN_BOUND) {
+            return score - ply;
+        }
+        return score;
+    }
+
+    static int scoreFromTable(int score, int ply) {
+        if (score >= WIN_BOUND) {
+            return score - ply;
+        }
+        if (score <= -WIN_BOUND) {
+            return score + ply;
+        }
+        return score;
+    }
+
+    /**
+     * 走棋方还有车、马、炮时才做空着裁剪，只剩兵和士象时“等着”常常就是最好的着法
+     */
+    private boolean hasNullMoveMaterial() {
+        return attackerCount(logic.isRedTurn()) > 0;
+    }
+
+    /**
+     * 走棋方车马炮不超过两个时视为子力较少的残局，空着截断需要验证
+     */
+    private boolean isLowMaterial() {
+        return attackerCount(logic.isRedTurn()) <= 2;
+    }
+
+    private int attackerCount(boolean isRed) {
+        ChessBoardModel model = logic.getModel();
+        return model.getPieceCount(PieceType.CAR.getCode(isRed))
+                + model.getPieceCount(PieceType.MA.getCode(isRed))
+                + model.getPieceCount(PieceType.PAO.getCode(isRed));
+    }
+
+    private void checkLimits() {
+        long now = System.currentTimeMillis();
+        if (stopRequested || nodes >= nodeLimit || now >= deadline || now >= stopDeadline
+                || (stopCondition != null && stopCondition.getAsBoolean())) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * 站在当前走棋方角度的局面分
+     */
+    private int evaluate() {
+        int score = logic.evaluateBoard();
+        return logic.isRedTurn() ? score : -score;
+    }
+
+    /**
+     * 把置换表给出的走法挪到最前面；走法不在列表中（例如哈希冲突）时不做任何事
+     */
+    private static void moveToFront(int[] moves, int count, int move) {
+        if (move == 0) {
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 根节点走法先随机打乱让 AI 更多变（可用 setShuffleRootMoves 关闭），再按 MoveOrderer 的分数（置换表走法、MVV-LVA 等）稳定排序
+     */
+    private void orderRootMoves(int[] moves, int count) {
+        for (int i = shuffleRootMoves ? count - 1 : 0; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = moves[i];
+            moves[i] = moves[j];
+            moves[j] = tmp;
+        }
+        int[] scores = rootScores;
+        orderer.scoreMoves(moves, scores, count, TranspositionTable.move(transTable.probe(logic.getZobristKey())), 0);
+        orderer.resolveCaptures(moves, scores, count);
+        MoveOrderer.sort(moves, scores, count);
+    }
+}
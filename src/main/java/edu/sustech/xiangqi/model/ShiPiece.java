@@ -5,13 +5,13 @@ package edu.sustech.xiangqi.model;
  */
 public class ShiPiece extends AbstractPiece {
 
-    public ShiPiece(String name, int row, int col, boolean isRed) {
-        super(name, row, col, isRed);
+    public ShiPiece(int row, int col, boolean isRed) {
+        super(PieceType.SHI, row, col, isRed);
     }
 
     @Override
     public AbstractPiece copy() {
-        return new ShiPiece(this.getName(), this.getRow(), this.getCol(), this.isRed());
+        return new ShiPiece(this.getRow(), this.getCol(), this.isRed());
     }
 
     @Override
@@ -49,4 +49,13 @@ public class ShiPiece extends AbstractPiece {
 
         return true;
     }
+
+    @Override
+    public int generateMoves(ChessBoardModel model, int[] targets, int count) {
+        int color = isRed() ? 0 : 1;
+        for (int to : MoveTables.SHI_MOVES[color][ChessBoardModel.toSquare(getRow(), getCol())]) {
+            count = addTarget(model, to, targets, count);
+        }
+        return count;
+    }
 }
\ No newline at end of file
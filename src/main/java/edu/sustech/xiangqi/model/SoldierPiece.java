@@ -5,13 +5,13 @@ package edu.sustech.xiangqi.model;
  */
 public class SoldierPiece extends AbstractPiece {
 
-    public SoldierPiece(String name, int row, int col, boolean isRed) {
-        super(name, row, col, isRed);
+    public SoldierPiece(int row, int col, boolean isRed) {
+        super(PieceType.SOLDIER, row, col, isRed);
     }
 
     @Override
     public AbstractPiece copy() {
-        return new SoldierPiece(this.getName(), this.getRow(), this.getCol(), this.isRed());
+        return new SoldierPiece(this.getRow(), this.getCol(), this.isRed());
     }
 
     @Override
@@ -59,4 +59,13 @@ public class SoldierPiece extends AbstractPiece {
             }
         }
     }
+
+    @Override
+    public int generateMoves(ChessBoardModel model, int[] targets, int count) {
+        int color = isRed() ? 0 : 1;
+        for (int to : MoveTables.SOLDIER_MOVES[color][ChessBoardModel.toSquare(getRow(), getCol())]) {
+            count = addTarget(model, to, targets, count);
+        }
+        return count;
+    }
 }
@@ -0,0 +1,221 @@
+package edu.sustech.xiangqi.model;
+
+/**
+ * 静态交换评估 (SEE)：只看一个格子上的连续兑换，双方每次都用价值最低的子去吃，任何一方都可以在吃亏前停手
+ * 每吃一次都重新寻找攻击者，所以离开的子让出的车路、炮架的增减、被让开的马腿和象眼都会被算进去；
+ * 不考虑牵制，被牵制的子仍然当作攻击者
+ */
+public class StaticExchange {
+    private static final int COLS = ChessBoardModel.getCols();
+    private static final int ROWS = ChessBoardModel.getRows();
+    private static final int[][] MA_OFFSETS = {{-2, -1}, {-2, 1}, {2, -1}, {2, 1}, {-1, -2}, {1, -2}, {-1, 2}, {1, 2}};
+    // 与 MA_OFFSETS 一一对应的马腿位置（相对目标格），总在目标的斜角上
+    private static final int[][] MA_LEGS = {{-1, -1}, {-1, 1}, {1, -1}, {1, 1}, {-1, -1}, {1, -1}, {-1, 1}, {1, 1}};
+
+    private final ChessBoardModel model;
+    // 兑换过程中已经离开原位的棋子，只在一次 evaluate 内有效
+    private final boolean[] removed = new boolean[ROWS * COLS];
+    private final int[] removedSquares = new int[ROWS * COLS];
+    private int removedCount;
+    private final int[] gains = new int[ROWS * COLS];
+
+    public StaticExchange(ChessBoardModel model) {
+        this.model = model;
+    }
+
+    /**
+     * 吃子走法的交换得失（站在走子方角度，单位同 EvaluationTables.BASE_VALUES），棋盘不会被修改
+     */
+    public int evaluate(int move) {
+        int from = Move.from(move);
+        int to = Move.to(move);
+        int piece = Move.piece(move);
+        removedCount = 0;
+        remove(from);
+
+        gains[0] = EvaluationTables.BASE_VALUES[Move.captured(move)];
+        int attackerValue = EvaluationTables.BASE_VALUES[piece];
+        boolean red = !PieceType.isRedCode(piece);
+        int depth = 0;
+        while (true) {
+            int square = leastValuableAttacker(to, red);
+            if (square < 0) {
+                break;
+            }
+            depth++;
+            gains[depth] = attackerValue - gains[depth - 1];
+            if (Math.max(-gains[depth - 1], gains[depth]) < 0) {
+                // 无论接下来怎么走，这一步都不会改变结论
+                break;
+            }
+            attackerValue = EvaluationTables.BASE_VALUES[model.getPieceAt(square).getCode()];
+            remove(square);
+            red = !red;
+        }
+        // 倒推：每一方都可以选择吃或不吃
+        for (; depth > 0; depth--) {
+            gains[depth - 1] = -Math.max(-gains[depth - 1], gains[depth]);
+        }
+
+        for (int i = 0; i < removedCount; i++) {
+            removed[removedSquares[i]] = false;
+        }
+        return gains[0];
+    }
+
+    /**
+     * red 一方能否吃到 target 上的子，vacated 格视为已经空出（-1 表示没有），棋盘不会被修改
+     * 用于判断被捉的子有没有根：vacated 是捉子一方离开的格子；与 evaluate 不同，将帅吃过去后照面的不算
+     */
+    public boolean isAttacked(int target, int vacated, boolean red) {
+        removedCount = 0;
+        if (vacated >= 0) {
+            remove(vacated);
+        }
+        int square = leastValuableAttacker(target, red);
+        // 将帅排在最后，返回它说明没有别的子能吃
+        if (square >= 0 && model.getPieceAt(square).getType() == PieceType.GENERAL) {
+            remove(square);
+            if (facesGeneral(target, red)) {
+                square = -1;
+            }
+        }
+        boolean attacked = square >= 0;
+        for (int i = 0; i < removedCount; i++) {
+            removed[removedSquares[i]] = false;
+        }
+        return attacked;
+    }
+
+    /**
+     * red 一方的将帅走到 target 后是否与对方将帅照面（中间的子按兑换过程中的状态看）
+     */
+    private boolean facesGeneral(int target, boolean red) {
+        int enemy = model.getGeneralSquare(!red);
+        if (enemy < 0 || enemy % COLS != target % COLS) {
+            return false;
+        }
+        int step = enemy > target ? COLS : -COLS;
+        for (int square = target + step; square != enemy; square += step) {
+            if (pieceAt(square / COLS, square % COLS) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void remove(int square) {
+        removed[square] = true;
+        removedSquares[removedCount++] = square;
+    }
+
+    /**
+     * 兑换过程中 (row, col) 上的棋子，已离开的子视为空
+     */
+    private AbstractPiece pieceAt(int row, int col) {
+        if (row < 0 || row >= ROWS || col < 0 || col >= COLS) {
+            return null;
+        }
+        int square = row * COLS + col;
+        return removed[square] ? null : model.getPieceAt(square);
+    }
+
+    private static boolean isAttacker(AbstractPiece piece, boolean red, PieceType type) {
+        return piece != null && piece.isRed() == red && piece.getType() == type;
+    }
+
+    /**
+     * 找出 red 一方能吃到 target 的价值最低的子
+     * @return 该子所在的格子索引，没有时返回 -1
+     */
+    private int leastValuableAttacker(int target, boolean red) {
+        int row = target / COLS;
+        int col = target % COLS;
+
+        // 兵/卒：从后方吃过来，过河后还能从左右两侧吃
+        int back = red ? 1 : -1;
+        if (isAttacker(pieceAt(row + back, col), red, PieceType.SOLDIER)) {
+            return target + back * COLS;
+        }
+        if (red ? row <= 4 : row >= 5) {
+            for (int dc = -1; dc <= 1; dc += 2) {
+                if (isAttacker(pieceAt(row, col + dc), red, PieceType.SOLDIER)) {
+                    return target + dc;
+                }
+            }
+        }
+
+        // 士：目标在己方九宫内，斜向相邻
+        boolean inPalace = col >= 3 && col <= 5 && (red ? row >= 7 : row <= 2);
+        if (inPalace) {
+            for (int dr = -1; dr <= 1; dr += 2) {
+                for (int dc = -1; dc <= 1; dc += 2) {
+                    if (isAttacker(pieceAt(row + dr, col + dc), red, PieceType.SHI)) {
+                        return target + dr * COLS + dc;
+                    }
+                }
+            }
+        }
+
+        // 象：目标在己方半场，隔一个空着的象眼
+        if (red ? row >= 5 : row <= 4) {
+            for (int dr = -1; dr <= 1; dr += 2) {
+                for (int dc = -1; dc <= 1; dc += 2) {
+                    if (isAttacker(pieceAt(row + 2 * dr, col + 2 * dc), red, PieceType.XIANG)
+                            && pieceAt(row + dr, col + dc) == null) {
+                        return target + 2 * dr * COLS + 2 * dc;
+                    }
+                }
+            }
+        }
+
+        // 马：马腿是目标的斜角，也就是从马所在格朝目标方向迈出的第一步
+        for (int i = 0; i < MA_OFFSETS.length; i++) {
+            int maRow = row + MA_OFFSETS[i][0];
+            int maCol = col + MA_OFFSETS[i][1];
+            if (isAttacker(pieceAt(maRow, maCol), red, PieceType.MA)
+                    && pieceAt(row + MA_LEGS[i][0], col + MA_LEGS[i][1]) == null) {
+                return maRow * COLS + maCol;
+            }
+        }
+
+        // 炮和车：沿四个方向，第一个子可能是车，隔一个炮架的子可能是炮；炮比车便宜，先返回炮
+        int car = -1;
+        for (int[] d : AbstractPiece.LINE_DIRECTIONS) {
+            int r = row + d[0];
+            int c = col + d[1];
+            while (r >= 0 && r < ROWS && c >= 0 && c < COLS && pieceAt(r, c) == null) {
+                r += d[0];
+                c += d[1];
+            }
+            if (r < 0 || r >= ROWS || c < 0 || c >= COLS) {
+                continue;
+            }
+            if (car < 0 && isAttacker(pieceAt(r, c), red, PieceType.CAR)) {
+                car = r * COLS + c;
+            }
+            r += d[0];
+            c += d[1];
+            while (r >= 0 && r < ROWS && c >= 0 && c < COLS && pieceAt(r, c) == null) {
+                r += d[0];
+                c += d[1];
+            }
+            if (isAttacker(pieceAt(r, c), red, PieceType.PAO)) {
+                return r * COLS + c;
+            }
+        }
+        if (car >= 0) {
+            return car;
+        }
+
+        // 将/帅：目标在己方九宫内，横竖相邻
+        if (inPalace) {
+            for (int[] d : AbstractPiece.LINE_DIRECTIONS) {
+                if (isAttacker(pieceAt(row + d[0], col + d[1]), red, PieceType.GENERAL)) {
+                    return target + d[0] * COLS + d[1];
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,108 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.Arrays;
+
+/**
+ * 置换表：以 Zobrist 键索引，记录搜索过的局面的深度、边界类型、分数和最佳走法
+ * 每个桶占 4 个 long，存两个表项 [键^数据, 数据]：第 0 项深度优先替换，第 1 项总是替换。
+ * 读出时用 键^数据 校验，多个搜索线程并发读写撕裂的表项会校验失败而被当作未命中，因此无需加锁。
+ *
+ * 数据位布局：走法 0~21 | 深度 22~29 | 边界类型 30~31 | 代数 32~39 | 分数 40~63（有符号）
+ */
+public class TranspositionTable {
+    // 边界类型，均不为 0，保证有效表项的数据不为 0
+    public static final int UPPER = 1; // 分数 <= alpha，真实值不超过该分数
+    public static final int LOWER = 2; // 分数 >= beta，真实值不低于该分数
+    public static final int EXACT = 3;
+
+    private static final int LONGS_PER_BUCKET = 4;
+    private static final int BYTES_PER_BUCKET = LONGS_PER_BUCKET * 8;
+
+    private final long[] table;
+    private final int bucketMask;
+    private int age;
+
+    /**
+     * @param sizeMb 表的大小（MB），实际桶数取不超过该大小的 2 的幂
+     */
+    public TranspositionTable(int sizeMb) {
+        long buckets = Math.max(1L, (long) sizeMb * 1024 * 1024 / BYTES_PER_BUCKET);
+        int count = Integer.highestOneBit((int) Math.min(buckets, 1 << 26));
+        this.table = new long[count * LONGS_PER_BUCKET];
+        this.bucketMask = count - 1;
+    }
+
+    /**
+     * 每次新的搜索开始时调用，旧搜索留下的表项会被优先替换
+     */
+    public void newSearch() {
+        age = (age + 1) & 0xFF;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0L);
+    }
+
+    /**
+     * @return 命中时返回表项数据（用 move/depth/flag/score 解码），未命中返回 0
+     */
+    public long probe(long key) {
+        int index = bucketIndex(key);
+        for (int i = index; i < index + LONGS_PER_BUCKET; i += 2) {
+            long check = table[i];
+            long data = table[i + 1];
+            if ((check ^ data) == key && data != 0) {
+                return data;
+            }
+        }
+        return 0L;
+    }
+
+    public void store(long key, int depth, int flag, int score, int move) {
+        int index = bucketIndex(key);
+        long data = (move & 0x3FFFFFL)
+                | ((long) Math.min(Math.max(depth, 0), 0xFF) << 22)
+                | ((long) flag << 30)
+                | ((long) age << 32)
+                | ((long) score << 40);
+
+        // 深度优先槽：同一局面、旧代数或深度不低于原表项时替换，否则写入总是替换槽
+        long oldData = table[index + 1];
+        if (oldData == 0 || (table[index] ^ oldData) == key
+                || age(oldData) != age || depth >= depth(oldData)) {
+            if (move == 0 && (table[index] ^ oldData) == key) {
+                // 没有新走法时保留原来的最佳走法，用于走法排序
+                data |= move(oldData);
+            }
+            table[index] = key ^ data;
+            table[index + 1] = data;
+        } else {
+            table[index + 2] = key ^ data;
+            table[index + 3] = data;
+        }
+    }
+
+    private int bucketIndex(long key) {
+        return ((int) (key ^ key >>> 32) & bucketMask) * LONGS_PER_BUCKET;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0x3FFFFFL);
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 22) & 0xFF;
+    }
+
+    public static int flag(long data) {
+        return (int) (data >>> 30) & 0x3;
+    }
+
+    public static int score(long data) {
+        return (int) (data >> 40);
+    }
+
+    private static int age(long data) {
+        return (int) (data >>> 32) & 0xFF;
+    }
+}
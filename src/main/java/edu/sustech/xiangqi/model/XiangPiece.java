@@ -5,13 +5,13 @@ package edu.sustech.xiangqi.model;
  */
 public class XiangPiece extends AbstractPiece {
 
-    public XiangPiece(String name, int row, int col, boolean isRed) {
-        super(name, row, col, isRed);
+    public XiangPiece(int row, int col, boolean isRed) {
+        super(PieceType.XIANG, row, col, isRed);
     }
 
     @Override
     public AbstractPiece copy() {
-        return new XiangPiece(this.getName(), this.getRow(), this.getCol(), this.isRed());
+        return new XiangPiece(this.getRow(), this.getCol(), this.isRed());
     }
 
     @Override
@@ -51,4 +51,18 @@ public class XiangPiece extends AbstractPiece {
 
         return true;
     }
+
+    @Override
+    public int generateMoves(ChessBoardModel model, int[] targets, int count) {
+        int color = isRed() ? 0 : 1;
+        int from = ChessBoardModel.toSquare(getRow(), getCol());
+        int[] eyes = MoveTables.XIANG_EYES[color][from];
+        int[] moves = MoveTables.XIANG_MOVES[color][from];
+        for (int i = 0; i < eyes.length; i++) {
+            if (model.getPieceAt(eyes[i]) == null) { // 象眼未被塞住
+                count = addTarget(model, moves[i], targets, count);
+            }
+        }
+        return count;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,462 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Young Brothers Wait 并行搜索：剩余深度足够的节点先串行搜第一个走法（长子），
+ * 得到可靠的 alpha 之后再把其余兄弟节点作为 ForkJoin 任务并行搜索。
+ * 兄弟先用零窗口搜索（靠后的普通走法还按 Searcher 的规则减少深度），超过共享的 alpha 时才重搜；
+ * 任一兄弟超过 beta 时其余兄弟立即停止。
+ * 每个工作线程第一次执行任务时才复制一份棋盘和搜索器，任务只记录从父节点走来的一着，
+ * 线程沿从根出发的路径把自己的棋盘走到任务的局面上，重复局面记录也随路径进出。
+ * 拆分节点同样做重复局面判定、将死步数剪枝、空着裁剪和将军延伸；剩余深度较浅的子树交给 Searcher 串行搜索
+ */
+public class YbwcSearch implements ParallelSearch {
+    private static final int SPLIT_MIN_DEPTH = 4; // 剩余深度不足时不再拆分
+    private static final int MAX_MOVES = 128;
+
+    private final GameLogicModel logic;
+    private final TranspositionTable transTable;
+    private final int threadCount;
+    private final LongAdder nodes = new LongAdder();
+    private boolean nullMovePruning = true;
+    private boolean lateMoveReductions = true;
+    private volatile boolean stopped;
+    private volatile boolean stopRequested;
+    private volatile long stopDeadline = Long.MAX_VALUE;
+    private long deadline;
+    private long nodeLimit;
+    private int extensionLimit; // 超过这一层不再做将军延伸，与 Searcher 的规则相同
+    private ThreadLocal<Worker> workers; // 每次搜索重新创建，工作线程的棋盘都从本次的根局面复制
+    private int completedDepth;
+    private PrincipalVariation principalVariation;
+
+    public YbwcSearch(GameLogicModel logic, TranspositionTable transTable, int threadCount) {
+        this.logic = logic;
+        this.transTable = transTable;
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    @Override
+    public void configure(Difficulty difficulty) {
+        this.nullMovePruning = difficulty.isNullMovePruning();
+        this.lateMoveReductions = difficulty.isLateMoveReductions();
+    }
+
+    @Override
+    public Move findBestMove(int maxDepth, long timeLimitMs, long nodeLimit) {
+        nodes.reset();
+        stopped = false;
+        completedDepth = 0;
+        principalVariation = null;
+        deadline = timeLimitMs > 0 ? System.currentTimeMillis() + timeLimitMs : Long.MAX_VALUE;
+        this.nodeLimit = nodeLimit > 0 ? nodeLimit : Long.MAX_VALUE;
+        transTable.newSearch();
+
+        int[] rootMoves = new int[MAX_MOVES];
+        int count = newSearcher(logic).generateRootMoves(rootMoves);
+        if (count == 0) {
+            return null;
+        }
+        workers = ThreadLocal.withInitial(Worker::new);
+        ForkJoinPool pool = new ForkJoinPool(threadCount);
+        try {
+            int score = 0;
+            for (int depth = 1; depth <= maxDepth; depth++) {
+                extensionLimit = Searcher.CHECK_EXTENSION_FACTOR * depth;
+                NodeTask root = searchWithAspiration(pool, rootMoves, count, depth, score);
+                if (isStopping()) {
+                    break;
+                }
+                score = root.bestValue;
+                completedDepth = depth;
+                principalVariation = new PrincipalVariation(collectPv(root.bestMove, depth), score, depth);
+                moveRootMoveToFront(rootMoves, count, root.bestMove);
+                // 搜索范围内已经分出将死，不必继续加深
+                if (Math.abs(score) > Searcher.BAN_SCORE && Searcher.MATE_SCORE - Math.abs(score) <= depth) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+            workers = null;
+        }
+        return logic.toMove(principalVariation != null ? principalVariation.getFirstMove() : rootMoves[0]);
+    }
+
+    @Override
+    public void stop() {
+        stopRequested = true;
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        stopDeadline = deadline;
+    }
+
+    @Override
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    @Override
+    public PrincipalVariation getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes.sum();
+    }
+
+    private Searcher newSearcher(GameLogicModel board) {
+        Searcher searcher = new Searcher(board, transTable);
+        searcher.setThreadIndex(1); // 不推进置换表代数
+        searcher.setNullMovePruning(nullMovePruning);
+        searcher.setLateMoveReductions(lateMoveReductions);
+        return searcher;
+    }
+
+    /**
+     * 与 Searcher 相同的渴望窗口：以上一层的分数为中心先用窄窗口搜索，落到窗口外再放宽重搜
+     * @return 最后一次（分数落在窗口内的）根节点任务；搜索中途被打断时结果无效
+     */
+    private NodeTask searchWithAspiration(ForkJoinPool pool, int[] rootMoves, int count, int depth, int previousScore) {
+        int window = Searcher.ASPIRATION_WINDOW;
+        int alpha = -Searcher.INFINITY;
+        int beta = Searcher.INFINITY;
+        if (depth >= Searcher.ASPIRATION_MIN_DEPTH && Math.abs(previousScore) < Searcher.WIN_BOUND) {
+            alpha = previousScore - window;
+            beta = previousScore + window;
+        }
+        while (true) {
+            NodeTask root = new NodeTask(null, 0, depth, 0, Arrays.copyOf(rootMoves, count), true, 0);
+            root.setWindow(alpha, beta);
+            int score = pool.invoke(root);
+            if (isStopping()) {
+                return root;
+            }
+            if (score <= alpha && alpha > -Searcher.INFINITY) {
+                alpha = Math.max(score - window, -Searcher.INFINITY);
+            } else if (score >= beta && beta < Searcher.INFINITY) {
+                beta = Math.min(score + window, Searcher.INFINITY);
+                // 在窗口上沿截断的走法更好，重搜时先搜它
+                moveRootMoveToFront(rootMoves, count, root.bestMove);
+            } else {
+                return root;
+            }
+            window *= 2;
+        }
+    }
+
+    private long searchDeadline() {
+        return Math.min(deadline, stopDeadline);
+    }
+
+    private boolean checkLimits() {
+        if (!stopped && (isStopping() || System.currentTimeMillis() >= deadline || nodes.sum() >= nodeLimit)) {
+            stopped = true;
+        }
+        return stopped;
+    }
+
+    /**
+     * 是否已收到停止请求或超过外部截止时间
+     */
+    private boolean isStopping() {
+        return stopped || stopRequested || System.currentTimeMillis() >= stopDeadline;
+    }
+
+    private static void moveRootMoveToFront(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = move;
+                return;
+            }
+        }
+    }
+
+    /**
+     * 拆分节点不维护主要变例，迭代结束后沿置换表里的最佳走法走出变例
+     */
+    private int[] collectPv(int firstMove, int depth) {
+        int[] pv = new int[depth];
+        int[] moves = new int[MAX_MOVES];
+        int length = 0;
+        int move = firstMove;
+        while (move != 0 && length < depth && contains(moves, logic.generateLegalMoves(moves), move)) {
+            logic.makeMove(move);
+            pv[length++] = move;
+            move = TranspositionTable.move(transTable.probe(logic.getZobristKey()));
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            logic.unmakeMove(pv[i]);
+        }
+        return Arrays.copyOf(pv, length);
+    }
+
+    private static boolean contains(int[] moves, int count, int move) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 工作线程自己的棋盘和搜索器，第一次在该线程上执行任务时从根局面复制
+     */
+    private class Worker {
+        private final GameLogicModel board = logic.createSandbox();
+        private final Searcher searcher = newSearcher(board);
+        private final int[] path = new int[Searcher.MAX_PLY];
+
+        Worker() {
+            searcher.beginPathSearch();
+        }
+
+        /**
+         * 把本线程的棋盘走到 task 的局面上
+         */
+        void follow(NodeTask task) {
+            for (NodeTask t = task; t.parent != null; t = t.parent) {
+                path[t.ply] = t.move;
+            }
+            searcher.followPath(path, task.ply);
+        }
+    }
+
+    /**
+     * 一个节点的搜索任务，只记录从父节点走来的一着，局面由执行它的线程沿路径走出
+     */
+    private class NodeTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final NodeTask parent;
+        private final int move; // 从父节点走到本节点的走法，根节点为 0
+        private final int ply;
+        private final int[] rootMoves; // 只有根节点使用预先生成好的走法
+        private final boolean eldest; // 长子直接用完整窗口搜索
+        private int reduction; // 晚走法裁剪的层数，走到被将军的局面时不裁剪
+        private int depth; // 开始时才加上将军延伸
+        private int alpha;
+        private int beta;
+        // 兄弟任务共享的下界，以及是否已经超过 beta
+        private AtomicInteger sharedAlpha;
+        private volatile boolean cutoff;
+        private int bestValue;
+        private int bestMove;
+
+        NodeTask(NodeTask parent, int move, int depth, int ply, int[] rootMoves, boolean eldest, int reduction) {
+            this.parent = parent;
+            this.move = move;
+            this.depth = depth;
+            this.ply = ply;
+            this.rootMoves = rootMoves;
+            this.eldest = eldest;
+            this.reduction = reduction;
+        }
+
+        void setWindow(int alpha, int beta) {
+            this.alpha = alpha;
+            this.beta = beta;
+        }
+
+        /**
+         * 任一祖先已经截断，或整个搜索已停止，本任务的结果就没有意义了
+         */
+        boolean isAborted() {
+            if (isStopping()) {
+                return true;
+            }
+            for (NodeTask task = parent; task != null; task = task.parent) {
+                if (task.cutoff) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (isAborted() || checkLimits()) {
+                return 0;
+            }
+            Worker worker = workers.get();
+            if (parent == null) {
+                return search(worker);
+            }
+            worker.follow(this);
+            // 将军延伸：与 Searcher 一样，走到被将军的局面时多搜一层，也不做晚走法裁剪
+            if (worker.searcher.isInCheck()) {
+                reduction = 0;
+                if (ply - 1 < extensionLimit) {
+                    depth++;
+                }
+            }
+            // 开始时才读取父节点的 alpha，能用上先完成的兄弟刚刚收紧的边界
+            int parentAlpha = parent.sharedAlpha.get();
+            int value;
+            if (eldest) {
+                setWindow(-parent.beta, -parentAlpha);
+                value = -search(worker);
+            } else {
+                setWindow(-parentAlpha - 1, -parentAlpha);
+                depth -= reduction;
+                value = -search(worker);
+                depth += reduction;
+                if (value > parentAlpha && reduction > 0 && !isAborted()) {
+                    setWindow(-parentAlpha - 1, -parentAlpha);
+                    value = -search(worker);
+                }
+                // 零窗口证明它可能更好，兄弟们在此期间没有把 alpha 抬过它时，再用完整窗口搜一次
+                parentAlpha = Math.max(parentAlpha, parent.sharedAlpha.get());
+                if (value > parentAlpha && value < parent.beta && !isAborted()) {
+                    setWindow(-parent.beta, -parentAlpha);
+                    value = -search(worker);
+                }
+            }
+            if (!isAborted()) {
+                parent.report(value, move);
+            }
+            return -value;
+        }
+
+        /**
+         * 按当前窗口搜索本节点；期间执行过别的任务的线程棋盘可能在别处，先走回本节点
+         */
+        private int search(Worker worker) {
+            worker.follow(this);
+            return depth < SPLIT_MIN_DEPTH && rootMoves == null ? searchSerial(worker.searcher) : searchSplit(worker);
+        }
+
+        private int searchSerial(Searcher searcher) {
+            searcher.prepareSubtree(searchDeadline(), extensionLimit);
+            searcher.setStopCondition(this::isAborted);
+            int value = searcher.searchSubtree(depth, alpha, beta);
+            return finishSerial(searcher) ? 0 : value;
+        }
+
+        /**
+         * 累加串行搜索的节点数
+         * @return 是否被停止；不是因为祖先截断而停止时说明时间用完，整个搜索停止
+         */
+        private boolean finishSerial(Searcher searcher) {
+            nodes.add(searcher.getNodes());
+            if (!searcher.wasStopped()) {
+                return false;
+            }
+            if (!isAborted()) {
+                stopped = true;
+            }
+            return true;
+        }
+
+        private int searchSplit(Worker worker) {
+            Searcher searcher = worker.searcher;
+            nodes.increment();
+            if (parent != null) {
+                // 重复局面和将死步数剪枝，与 Searcher.negamax 相同
+                int repetition = searcher.repetitionScoreAtPath();
+                if (repetition != Searcher.NO_REPETITION) {
+                    return repetition;
+                }
+                alpha = Math.max(alpha, -Searcher.MATE_SCORE + ply);
+                beta = Math.min(beta, Searcher.MATE_SCORE - ply - 1);
+                if (alpha >= beta) {
+                    return alpha;
+                }
+            }
+            boolean pvNode = beta - alpha > 1;
+            long key = worker.board.getZobristKey();
+            long entry = transTable.probe(key);
+            int ttMove = TranspositionTable.move(entry);
+            if (parent != null && !pvNode && entry != 0 && TranspositionTable.depth(entry) >= depth) {
+                int score = Searcher.scoreFromTable(TranspositionTable.score(entry), ply);
+                int flag = TranspositionTable.flag(entry);
+                if (flag == TranspositionTable.EXACT
+                        || (flag == TranspositionTable.LOWER && score >= beta)
+                        || (flag == TranspositionTable.UPPER && score <= alpha)) {
+                    return score;
+                }
+            }
+            boolean inCheck = searcher.isInCheck();
+            if (parent != null && !pvNode && !inCheck) {
+                searcher.prepareSubtree(searchDeadline(), extensionLimit);
+                searcher.setStopCondition(this::isAborted);
+                int value = searcher.nullMoveScore(depth, beta, ply, ttMove);
+                if (finishSerial(searcher)) {
+                    return 0;
+                }
+                if (value != -Searcher.INFINITY) {
+                    return value;
+                }
+            }
+
+            int[] moves = rootMoves;
+            boolean[] quiet = null;
+            int count = rootMoves != null ? rootMoves.length : 0;
+            if (rootMoves == null) {
+                moves = new int[MAX_MOVES];
+                quiet = new boolean[MAX_MOVES];
+                count = searcher.generateOrderedMoves(moves, quiet, ttMove);
+            }
+            if (count == 0) {
+                // 无棋可走：被将死或困毙，都判走棋方负
+                return -Searcher.MATE_SCORE + ply;
+            }
+            int originalAlpha = alpha;
+            bestValue = -Searcher.INFINITY;
+            bestMove = 0;
+            cutoff = false;
+            sharedAlpha = new AtomicInteger(alpha);
+
+            // 长子：在本线程里直接搜索
+            new NodeTask(this, moves[0], depth - 1, ply + 1, null, true, 0).compute();
+
+            // 其余兄弟：作为任务并行搜索，被别的线程取走时由那个线程走出局面
+            if (!cutoff && !isAborted() && count > 1) {
+                NodeTask[] brothers = new NodeTask[count - 1];
+                for (int i = 1; i < count; i++) {
+                    // 与 Searcher 一样，根节点的走法不做晚走法裁剪
+                    int reduction = quiet != null && quiet[i] && !inCheck
+                            ? searcher.lateMoveReduction(depth, i + 1) : 0;
+                    brothers[i - 1] = new NodeTask(this, moves[i], depth - 1, ply + 1, null, false, reduction);
+                }
+                invokeAll(brothers);
+            }
+            if (isAborted()) {
+                return 0;
+            }
+
+            if (bestValue >= beta) {
+                searcher.recordCutoff(bestMove, depth, ply);
+            }
+            int flag = bestValue <= originalAlpha ? TranspositionTable.UPPER
+                    : bestValue >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            transTable.store(key, depth, flag, Searcher.scoreToTable(bestValue, ply),
+                    flag == TranspositionTable.UPPER ? 0 : bestMove);
+            return bestValue;
+        }
+
+        /**
+         * 子任务完成后汇报分数（已换算到本节点的角度）
+         */
+        synchronized void report(int value, int childMove) {
+            if (value > bestValue) {
+                bestValue = value;
+                bestMove = childMove;
+            }
+            sharedAlpha.accumulateAndGet(value, Math::max);
+            if (value >= beta) {
+                cutoff = true;
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package edu.sustech.xiangqi.model;
+
+import java.util.Random;
+
+/**
+ * Zobrist 哈希随机数表
+ * 局面键 = 所有棋子 PIECE_KEYS[棋子编码][格子索引] 的异或，黑方走棋时再异或 SIDE_KEY
+ * 走子时只需异或进出的几项即可增量更新，用于重复局面检测和置换表
+ */
+public final class Zobrist {
+    public static final long[][] PIECE_KEYS = new long[PieceType.CODE_COUNT][ChessBoardModel.getRows() * ChessBoardModel.getCols()];
+    public static final long SIDE_KEY;
+
+    static {
+        // 固定种子，保证每次运行得到相同的键
+        Random random = new Random(0x5A0B1C2D3E4F6071L);
+        for (long[] keys : PIECE_KEYS) {
+            for (int sq = 0; sq < keys.length; sq++) {
+                keys[sq] = random.nextLong();
+            }
+        }
+        SIDE_KEY = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    public static long pieceKey(AbstractPiece piece) {
+        return PIECE_KEYS[piece.getCode()][ChessBoardModel.toSquare(piece.getRow(), piece.getCol())];
+    }
+}
@@ -3,182 +3,304 @@ package edu.sustech.xiangqi.ui;
 import edu.sustech.xiangqi.model.AbstractPiece;
 import edu.sustech.xiangqi.model.GameLogicModel;
 import edu.sustech.xiangqi.model.ChessBoardModel;
+import edu.sustech.xiangqi.model.Difficulty;
 import edu.sustech.xiangqi.model.Move;
 import edu.sustech.xiangqi.model.OpeningBook;
+import edu.sustech.xiangqi.model.ParallelSearch;
+import edu.sustech.xiangqi.model.ParallelStrategy;
+import edu.sustech.xiangqi.model.PrincipalVariation;
+import edu.sustech.xiangqi.model.RepetitionAdjudicator;
+import edu.sustech.xiangqi.model.Searcher;
+import edu.sustech.xiangqi.model.TranspositionTable;
 
 import javax.swing.*;
-import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 
 public class AIEngine {
+    private static final int DEFAULT_TT_SIZE_MB = 16;
+    private static final int MAX_SEARCH_DEPTH = 64;
+
     private final GameLogicModel gameLogic;
     private final ChessBoardPanel boardPanel;
-    private final int searchDepth; // AI 搜索深度
+    private final long nodeLimit; // 每步棋的节点预算，0 表示不限
+    // 置换表在多次走棋之间复用，上一步搜过的局面可以直接命中
+    private final TranspositionTable transTable;
+    private Difficulty difficulty; // 决定思考时间和剪枝开关
+    private int threadCount = Runtime.getRuntime().availableProcessors(); // 并行搜索的线程数
+    private boolean ponderEnabled = true; // 对手思考时是否后台思考
+    private AISearchHandle ponderHandle; // 正在进行的后台思考，只在 EDT 上读写
+    private ParallelStrategy parallelStrategy = ParallelStrategy.LAZY_SMP;
+
+    public AIEngine(GameLogicModel gameLogic, ChessBoardPanel boardPanel, Difficulty difficulty) {
+        this(gameLogic, boardPanel, difficulty, 0, DEFAULT_TT_SIZE_MB);
+    }
 
-    public AIEngine(GameLogicModel gameLogic, ChessBoardPanel boardPanel, int searchDepth) {
+    /**
+     * @param difficulty 难度，其思考时间用完时迭代加深返回最后一个完整迭代的结果
+     * @param nodeLimit 每步棋的节点预算，0 表示不限
+     * @param ttSizeMb 置换表大小（MB）
+     */
+    public AIEngine(GameLogicModel gameLogic, ChessBoardPanel boardPanel, Difficulty difficulty, long nodeLimit, int ttSizeMb) {
         this.gameLogic = gameLogic;
         this.boardPanel = boardPanel;
-        this.searchDepth = searchDepth;
+        this.difficulty = difficulty;
+        this.nodeLimit = nodeLimit;
+        this.transTable = new TranspositionTable(ttSizeMb);
+    }
+
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public void setDifficulty(Difficulty difficulty) {
+        this.difficulty = difficulty;
     }
 
-    public void performComputerMove() {
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    /**
+     * @param threadCount 搜索线程数，1 表示单线程搜索
+     */
+    public void setThreadCount(int threadCount) {
+        this.threadCount = Math.max(1, threadCount);
+    }
+
+    public boolean isPonderEnabled() {
+        return ponderEnabled;
+    }
+
+    /**
+     * 开关后台思考：AI 走完后按主要变例预测对手的应着，在对手思考时提前搜索
+     */
+    public void setPonderEnabled(boolean ponderEnabled) {
+        this.ponderEnabled = ponderEnabled;
+        if (!ponderEnabled) {
+            stopPondering();
+        }
+    }
+
+    public ParallelStrategy getParallelStrategy() {
+        return parallelStrategy;
+    }
+
+    /**
+     * 选择并行搜索策略（Lazy SMP 或 Young Brothers Wait）
+     */
+    public void setParallelStrategy(ParallelStrategy parallelStrategy) {
+        this.parallelStrategy = parallelStrategy;
+    }
+
+    /**
+     * 在后台线程里为当前走棋方思考并走一步棋
+     * 如果正在后台思考并且对手走的正是预测的着法，直接接着后台思考的结果搜索
+     * @return 本次思考的句柄，悔棋、重开或返回主菜单时用它中止搜索
+     */
+    public AISearchHandle performComputerMove() {
         boardPanel.setBoardEnabled(false);
         boardPanel.setAISimulating(true);
         boardPanel.repaint();
 
-        SwingWorker<Move, Void> worker = new SwingWorker<Move, Void>() {
-            @Override
-            protected Move doInBackground() throws Exception {
-                // 1.克隆游戏环境（数据模型 + 逻辑模型）
-
-                
-                ChessBoardModel sandboxModel; 
-                boolean currentRedTurn;
-                List<String> currentHistory;
-                synchronized(gameLogic.getModel()) { 
-                    sandboxModel = gameLogic.getModel().deepClone();
-                    currentRedTurn = gameLogic.isRedTurn();
-                    currentHistory = gameLogic.getFenHistory();
+        AISearchHandle ponder = ponderHandle;
+        ponderHandle = null;
+        if (ponder != null) {
+            if (!ponder.isAborted() && ponder.getPonderKey() == gameLogic.getZobristKey()) {
+                ponder.ponderHit(System.currentTimeMillis() + difficulty.getThinkTimeMs());
+                if (ponder.hasPendingResult()) {
+                    // 后台思考已经提前搜完，结果暂存在句柄里
+                    AISearchHandle finished = ponder;
+                    SwingUtilities.invokeLater(() -> finishMove(finished, finished.getPendingMove()));
                 }
-                
-                GameLogicModel sandboxLogic = new GameLogicModel(sandboxModel);
+                return ponder;
+            }
+            // 没猜中：丢弃后台搜索，置换表和走法排序的经验仍然保留
+            ponder.abort();
+        }
 
-                sandboxLogic.setRedTurn(currentRedTurn);
-                sandboxLogic.setFenHistory(currentHistory);
+        AISearchHandle handle = new AISearchHandle();
+        startSearch(handle, null);
+        return handle;
+    }
 
-                // 查询开局库 
-                String currentFen = sandboxModel.getFen();
-                // 方便复制 FEN 串去手写开局库
-                System.out.println("当前FEN: " + currentFen); 
-                
-                int[] bookMoveCoords = OpeningBook.getBookMove(currentFen);
-                if (bookMoveCoords != null) {
-                    System.out.println(">>> 命中开局库！秒下！");
-                    // 将坐标转换为合法的 Move 对象返回
-                    return findMoveByCoords(sandboxLogic, bookMoveCoords);
+    /**
+     * 中止后台思考（悔棋、重开、对局结束时调用）
+     */
+    public void stopPondering() {
+        if (ponderHandle != null) {
+            ponderHandle.abort();
+            ponderHandle = null;
+        }
+    }
+
+    /**
+     * 在后台线程里分析当前局面，给出最好的 multiPv 个走法及各自的分数和主要变例（提示、复盘用）
+     * 只在单线程上跑 Searcher.analyze，不走并行策略；迭代从第 1 层开始、不用渴望窗口，
+     * 所以第一名与 performComputerMove 实际会走的棋可能不同。置换表与对弈共用，思考时间、节点预算和剪枝开关按当前难度
+     * @param callback 在 EDT 上接收按分数从高到低排列的变例；被中止时不调用
+     * @return 本次分析的句柄，用它中止分析
+     */
+    public AISearchHandle analyze(int multiPv, Consumer<List<PrincipalVariation>> callback) {
+        AISearchHandle handle = new AISearchHandle();
+        SwingWorker<List<PrincipalVariation>, Void> worker = new SwingWorker<List<PrincipalVariation>, Void>() {
+            @Override
+            protected List<PrincipalVariation> doInBackground() throws Exception {
+                GameLogicModel sandboxLogic;
+                synchronized (gameLogic.getModel()) {
+                    sandboxLogic = gameLogic.createSandbox();
                 }
-                
-                // 2. 在沙盒逻辑上跑 AI，完全不会影响 UI
-                return findBestMove(sandboxLogic, searchDepth, false, Integer.MIN_VALUE, Integer.MAX_VALUE);
+                Searcher searcher = new Searcher(sandboxLogic, transTable);
+                difficulty.configure(searcher);
+                handle.attach(searcher);
+                return searcher.analyze(multiPv, MAX_SEARCH_DEPTH, difficulty.getThinkTimeMs(), nodeLimit);
             }
 
             @Override
             protected void done() {
+                handle.setDone();
+                if (handle.isAborted()) {
+                    return;
+                }
                 try {
-                    Move bestMove = get(); // 获取计算结果（这里的 Move 包含的是沙盒里的棋子对象）
-                    if (bestMove != null) {
-                        // 3. 将沙盒的计算结果，映射回主棋盘
-                        int fromRow = bestMove.getFromRow();
-                        int fromCol = bestMove.getFromCol();
-                        int toRow = bestMove.getToRow();
-                        int toCol = bestMove.getToCol();
-
-                        // 在主线程执行真实移动
-                        gameLogic.selectPiece(fromRow, fromCol);
-                        gameLogic.tryMove(toRow, toCol);
-                    }
+                    callback.accept(get());
                 } catch (InterruptedException | ExecutionException e) {
                     e.printStackTrace();
-                } finally {
-                    // 恢复 UI
-                    boardPanel.setAISimulating(false);
-                    boardPanel.setBoardEnabled(true);
-                    boardPanel.repaint();
-                    if (boardPanel.checkGameOver()) {
-                        boardPanel.showGameOverDialog();
-                    }
                 }
             }
         };
         worker.execute();
+        return handle;
     }
 
     /**
-     * 查找最佳走法 (Alpha-Beta 剪枝的入口)
-     * AI是黑方，所以是 "MinimizingPlayer" (isMaximizingPlayer = false)
+     * @param ponderLogic 后台思考时要搜索的局面（已走完预测着法），正常思考时为 null
      */
-    private Move findBestMove(GameLogicModel logic, int depth, boolean isMaximizingPlayer, int alpha, int beta) {
-        List<Move> legalMoves = logic.getAllLegalMoves(logic.isRedTurn());
+    private void startSearch(AISearchHandle handle, GameLogicModel ponderLogic) {
+        SwingWorker<Move, Void> worker = new SwingWorker<Move, Void>() {
+            @Override
+            protected Move doInBackground() throws Exception {
+                GameLogicModel sandboxLogic = ponderLogic;
+                if (sandboxLogic == null) {
+                    // 1.克隆游戏环境（数据模型 + 逻辑模型）
 
-        Collections.shuffle(legalMoves);
-        legalMoves.sort((m1, m2) -> (m2.getEatPiece() != null ? 1 : 0) - (m1.getEatPiece() != null ? 1 : 0));
+                    
+                    ChessBoardModel sandboxModel; 
+                    boolean currentRedTurn;
+                    RepetitionAdjudicator currentHistory;
+                    synchronized(gameLogic.getModel()) { 
+                        sandboxModel = gameLogic.getModel().deepClone();
+                        currentRedTurn = gameLogic.isRedTurn();
+                        currentHistory = gameLogic.getAdjudicator().copy();
+                    }
+                    
+                    sandboxLogic = new GameLogicModel(sandboxModel);
 
-        Move bestMove = null;
-        int bestValue = Integer.MAX_VALUE; // AI (黑方) 找最小值
+                    sandboxLogic.setRedTurn(currentRedTurn);
+                    sandboxLogic.setAdjudicator(currentHistory);
 
-        for (Move move : legalMoves) {
-            if (logic.isProhibitedMove(move)) {
-                continue;
+                    // 查询开局库 
+                    String currentFen = sandboxModel.getFen();
+                    // 方便复制 FEN 串去手写开局库
+                    System.out.println("当前FEN: " + currentFen); 
+                    
+                    int[] bookMoveCoords = OpeningBook.getBookMove(currentFen);
+                    if (bookMoveCoords != null) {
+                        System.out.println(">>> 命中开局库！秒下！");
+                        // 将坐标转换为合法的 Move 对象返回
+                        return findMoveByCoords(sandboxLogic, bookMoveCoords);
+                    }
+                }
+                
+                // 2. 在沙盒逻辑上跑 AI，完全不会影响 UI
+                // 后台思考不限时，命中后由 ponderHit 设定截止时间
+                ParallelSearch searcher = parallelStrategy.create(sandboxLogic, transTable, threadCount);
+                searcher.configure(difficulty);
+                handle.attach(searcher);
+                long timeLimit = handle.isPonder() ? 0 : difficulty.getThinkTimeMs();
+                Move bestMove = searcher.findBestMove(MAX_SEARCH_DEPTH, timeLimit, nodeLimit);
+                handle.setPrincipalVariation(searcher.getPrincipalVariation());
+                return bestMove;
             }
-            logic.performMoveUnchecked(move);
-        
-            int value = minimax(logic, depth - 1, true, alpha, beta);
-
-            logic.undoMoveUnchecked();
 
-            if (value < bestValue) {
-                bestValue = value;
-                bestMove = move;
+            @Override
+            protected void done() {
+                if (handle.isAborted()) {
+                    handle.setDone();
+                    // 被中止时棋盘可能已经悔棋或重开，界面也已由中止方恢复，结果直接作废
+                    return;
+                }
+                Move bestMove = null;
+                try {
+                    bestMove = get(); // 获取计算结果（这里的 Move 包含的是沙盒里的棋子对象）
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                }
+                if (handle.isPondering()) {
+                    // 对手还没走，先把结果存起来，命中时直接使用
+                    handle.setPendingMove(bestMove);
+                    return;
+                }
+                finishMove(handle, bestMove);
             }
-            beta = Math.min(beta, bestValue);
-            if (beta <= alpha) break;
-        }
-        return bestMove;
+        };
+        worker.execute();
     }
 
     /**
-     * Minimax 递归函数
+     * 在主线程把搜索结果走到棋盘上并恢复界面，然后开始后台思考对手的应着
      */
-    private int minimax(GameLogicModel logic, int depth, boolean isMaximizingPlayer, int alpha, int beta) {
-        if (depth == 0) {
-            // 评估沙盒 logic 的局面
-            return logic.evaluateBoard();
-        }
-
-        // 检查沙盒 logic 的状态
-        if (logic.checkAndUpdateGameState()) {
-            GameLogicModel.GameState state = logic.getGameState();
-            if (state == GameLogicModel.GameState.RED_WIN) return 1000000;
-            if (state == GameLogicModel.GameState.BLACK_WIN) return -1000000;
-            return 0;
+    private void finishMove(AISearchHandle handle, Move bestMove) {
+        handle.setDone();
+        if (handle.isAborted()) {
+            return;
         }
+        try {
+            if (bestMove != null) {
+                // 3. 将沙盒的计算结果，映射回主棋盘
+                int fromRow = bestMove.getFromRow();
+                int fromCol = bestMove.getFromCol();
+                int toRow = bestMove.getToRow();
+                int toCol = bestMove.getToCol();
 
-        List<Move> legalMoves = logic.getAllLegalMoves(logic.isRedTurn());
-
-        if (legalMoves.isEmpty()) {
-            return 0;
-        }
-
-        if (isMaximizingPlayer) { // 红方 (Max)
-            int bestValue = Integer.MIN_VALUE;
-            for (Move move : legalMoves) {
-                logic.performMoveUnchecked(move);
-
-                // 传递 logic
-                bestValue = Math.max(bestValue, minimax(logic, depth - 1, false, alpha, beta));
-                logic.undoMoveUnchecked();
-
-                alpha = Math.max(alpha, bestValue);
-                if (beta <= alpha) break;
+                // 在主线程执行真实移动
+                gameLogic.selectPiece(fromRow, fromCol);
+                gameLogic.tryMove(toRow, toCol);
             }
-            return bestValue;
-        } else { // 黑方 (Min)
-            int bestValue = Integer.MAX_VALUE;
-            for (Move move : legalMoves) {
-                logic.performMoveUnchecked(move);
-
-                // 传递 logic
-                bestValue = Math.min(bestValue, minimax(logic, depth - 1, true, alpha, beta));
-                logic.undoMoveUnchecked();
-
-                beta = Math.min(beta, bestValue);
-                if (beta <= alpha) break;
+        } finally {
+            // 恢复 UI
+            boardPanel.setAISimulating(false);
+            boardPanel.setBoardEnabled(true);
+            boardPanel.repaint();
+            if (boardPanel.checkGameOver()) {
+                boardPanel.showGameOverDialog();
+            } else if (bestMove != null) {
+                startPondering(handle.getPrincipalVariation());
             }
-            return bestValue;
         }
     }
 
+    /**
+     * 按主要变例里预测的对手应着开始后台思考
+     */
+    private void startPondering(PrincipalVariation pv) {
+        if (!ponderEnabled || pv == null || pv.getMoves().length < 2) {
+            return;
+        }
+        int predicted = pv.getMoves()[1];
+        int cols = ChessBoardModel.getCols();
+        GameLogicModel ponderLogic = gameLogic.createSandbox();
+        // 用 tryMove 走预测着法，顺带做合法性检查并维护重复局面历史
+        if (!ponderLogic.selectPiece(Move.from(predicted) / cols, Move.from(predicted) % cols)
+                || !ponderLogic.tryMove(Move.to(predicted) / cols, Move.to(predicted) % cols)
+                || ponderLogic.getGameState() != GameLogicModel.GameState.PLAYING) {
+            return;
+        }
+        AISearchHandle handle = new AISearchHandle(true, ponderLogic.getZobristKey());
+        ponderHandle = handle;
+        startSearch(handle, ponderLogic);
+    }
 
     private Move findMoveByCoords(GameLogicModel logic, int[] coords) {
         int fromR = coords[0];
@@ -0,0 +1,139 @@
+package edu.sustech.xiangqi.ui;
+
+import edu.sustech.xiangqi.model.Move;
+import edu.sustech.xiangqi.model.ParallelSearch;
+import edu.sustech.xiangqi.model.PrincipalVariation;
+import edu.sustech.xiangqi.model.Searcher;
+
+/**
+ * 一次 AI 思考的句柄，由 AIEngine.performComputerMove 返回
+ * 中止后搜索会在下一次检查停止标志时结束，算出的走法也不会再落到棋盘上
+ *
+ * 后台思考（ponder）也用它表示：此时搜索的是假设对手走了预测着法之后的局面，不限时；
+ * 对手真的走了这步（命中）时再定下截止时间，搜索带着已有的结果继续
+ *
+ * 局面分析（AIEngine.analyze）也返回它，此时登记的是单线程的 Searcher，只用来中止
+ */
+public class AISearchHandle {
+    private final boolean ponder;
+    private final long ponderKey; // 后台思考所搜局面的 Zobrist 键
+    private volatile boolean pondering;
+    private volatile boolean aborted;
+    private volatile boolean done;
+    private volatile ParallelSearch search;
+    private volatile Searcher analyzer; // 局面分析用的单线程搜索器
+    private volatile long deadline = Long.MAX_VALUE;
+    private volatile PrincipalVariation principalVariation;
+    // 后台思考在命中前就已结束时暂存的结果，只在 EDT 上读写
+    private boolean pendingResult;
+    private Move pendingMove;
+
+    public AISearchHandle() {
+        this(false, 0L);
+    }
+
+    AISearchHandle(boolean ponder, long ponderKey) {
+        this.ponder = ponder;
+        this.ponderKey = ponderKey;
+        this.pondering = ponder;
+    }
+
+    /**
+     * 中止这次思考，可以在任何线程调用，重复调用无副作用
+     */
+    public void abort() {
+        aborted = true;
+        ParallelSearch current = search;
+        if (current != null) {
+            current.stop();
+        }
+        Searcher currentAnalyzer = analyzer;
+        if (currentAnalyzer != null) {
+            currentAnalyzer.stop();
+        }
+    }
+
+    public boolean isAborted() {
+        return aborted;
+    }
+
+    /**
+     * 思考是否已经结束（包括正常走完一步和被中止），后台思考的结果暂存待用时不算结束
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    void setDone() {
+        this.done = true;
+    }
+
+    boolean isPonder() {
+        return ponder;
+    }
+
+    /**
+     * 是否还在后台思考中（尚未命中）
+     */
+    boolean isPondering() {
+        return pondering;
+    }
+
+    long getPonderKey() {
+        return ponderKey;
+    }
+
+    /**
+     * 后台思考命中：从此按 deadline 结束搜索
+     */
+    void ponderHit(long deadline) {
+        this.deadline = deadline;
+        this.pondering = false;
+        ParallelSearch current = search;
+        if (current != null) {
+            current.setDeadline(deadline);
+        }
+    }
+
+    /**
+     * 搜索开始前登记，abort 和 ponderHit 在登记之前或之后调用都能生效
+     */
+    void attach(ParallelSearch search) {
+        this.search = search;
+        search.setDeadline(deadline);
+        if (aborted) {
+            search.stop();
+        }
+    }
+
+    /**
+     * 局面分析开始前登记，abort 在登记之前或之后调用都能生效
+     */
+    void attach(Searcher analyzer) {
+        this.analyzer = analyzer;
+        if (aborted) {
+            analyzer.stop();
+        }
+    }
+
+    PrincipalVariation getPrincipalVariation() {
+        return principalVariation;
+    }
+
+    void setPrincipalVariation(PrincipalVariation principalVariation) {
+        this.principalVariation = principalVariation;
+    }
+
+    boolean hasPendingResult() {
+        return pendingResult;
+    }
+
+    Move getPendingMove() {
+        return pendingMove;
+    }
+
+    void setPendingMove(Move pendingMove) {
+        this.pendingMove = pendingMove;
+        this.pendingResult = true;
+    }
+}
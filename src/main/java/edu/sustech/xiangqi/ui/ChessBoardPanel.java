@@ -2,6 +2,7 @@ package edu.sustech.xiangqi.ui;
 
 import edu.sustech.xiangqi.model.ChessBoardModel;
 import edu.sustech.xiangqi.model.AbstractPiece;
+import edu.sustech.xiangqi.model.Difficulty;
 import edu.sustech.xiangqi.model.GameLogicModel;
 import edu.sustech.xiangqi.model.Move;
 
@@ -19,6 +20,7 @@ public class ChessBoardPanel extends JPanel {
     private Image selectFrameImage;
 
     private AIEngine aiEngine;
+    private AISearchHandle aiSearch; // 正在进行的 AI 思考，没有时为 null
     private boolean isAIGame = false; // 游戏模式
     private boolean boardEnabled = true; // 控制棋盘是否可点击
     private boolean isAISimulating = false;
@@ -44,7 +46,7 @@ public class ChessBoardPanel extends JPanel {
         this.gameLogic = gameLogic;
         this.boardImage = ImageLoader.loadImage("WOOD.GIF");
         this.selectFrameImage = ImageLoader.loadImage("r_box.png");
-        this.aiEngine = new AIEngine(this.gameLogic, this, 4);
+        this.aiEngine = new AIEngine(this.gameLogic, this, Difficulty.NORMAL);
         setPreferredSize(new Dimension(
                 CELL_SIZE * (ChessBoardModel.getCols() - 1) + MARGIN * 2,
                 CELL_SIZE * (ChessBoardModel.getRows() - 1) + MARGIN * 2
@@ -95,7 +97,7 @@ public class ChessBoardPanel extends JPanel {
                 } else if (isAIGame && !gameLogic.isRedTurn()) {
 
                     // 如果是AI局，且轮到AI(黑方)走棋
-                    aiEngine.performComputerMove(); //
+                    aiSearch = aiEngine.performComputerMove();
                 }
             } else {
                 // 移动失败（非法移动）
@@ -110,6 +112,7 @@ public class ChessBoardPanel extends JPanel {
     }
 
     public void showGameOverDialog() {
+        aiEngine.stopPondering();
         GameLogicModel.GameState state = gameLogic.getGameState(); // 假设 gameLogic 有 getGameState
         String winner = null;
 
@@ -149,13 +152,11 @@ public class ChessBoardPanel extends JPanel {
         
         if (piece == null) return validMoves;
         
-        // 遍历整个棋盘，找出所有合法移动
-        for (int r = 0; r < ChessBoardModel.getRows(); r++) {
-            for (int c = 0; c < ChessBoardModel.getCols(); c++) {
-                if (piece.canMoveTo(r, c, model)) {
-                    validMoves.add(new Point(c, r)); 
-                }
-            }
+        // 只列出棋子能到达的目标格
+        int[] targets = new int[AbstractPiece.MAX_TARGETS];
+        int count = piece.generateMoves(model, targets, 0);
+        for (int i = 0; i < count; i++) {
+            validMoves.add(new Point(targets[i] % ChessBoardModel.getCols(), targets[i] / ChessBoardModel.getCols()));
         }
         
         return validMoves;
@@ -265,31 +266,19 @@ public class ChessBoardPanel extends JPanel {
                     PIECE_RADIUS * 2-3, PIECE_RADIUS * 2-3);    
     }
 
+    /**
+     * 按棋子编码 (AbstractPiece.getCode) 索引的图片名，红方 0~6，黑方 7~13
+     */
+    private static final String[] PIECE_IMAGE_NAMES = {
+            "r_j", "r_s", "r_x", "r_m", "r_c", "r_p", "r_z",
+            "b_j", "b_s", "b_x", "b_m", "b_c", "b_p", "b_z"
+    };
+
     /**
      * 根据棋子获取对应的图片
      */
     private Image getImageForPiece(AbstractPiece piece) {
-        String name = piece.getName();
-        boolean isRed = piece.isRed();
-        String imageName = "";
-
-        if (name.equals("帅")) imageName = "r_j";
-        else if (name.equals("将")) imageName = "b_j";
-        else if (name.equals("车") && isRed) imageName = "r_c";
-        else if (name.equals("车") && !isRed) imageName = "b_c";
-        else if (name.equals("马") && isRed) imageName = "r_m";
-        else if (name.equals("马") && !isRed) imageName = "b_m";
-        else if (name.equals("相")) imageName = "r_x";
-        else if (name.equals("象")) imageName = "b_x";
-        else if (name.equals("仕")) imageName = "r_s";
-        else if (name.equals("士")) imageName = "b_s";
-        else if (name.equals("炮") && isRed) imageName = "r_p";
-        else if (name.equals("炮") && !isRed) imageName = "b_p";
-        else if (name.equals("兵")) imageName = "r_z";
-        else if (name.equals("卒")) imageName = "b_z";
-
-
-        return ImageLoader.loadImage(imageName + ".png");
+        return ImageLoader.loadImage(PIECE_IMAGE_NAMES[piece.getCode()] + ".png");
     }
 
 
@@ -355,10 +344,29 @@ public class ChessBoardPanel extends JPanel {
         }
     }
 
+    /**
+     * 中止正在进行的 AI 思考并恢复棋盘交互，悔棋、重开、返回主菜单前调用
+     * @return 是否确实中止了一次思考
+     */
+    public boolean abortAISearch() {
+        aiEngine.stopPondering();
+        if (aiSearch == null || aiSearch.isDone()) {
+            aiSearch = null;
+            return false;
+        }
+        aiSearch.abort();
+        aiSearch = null;
+        setAISimulating(false);
+        setBoardEnabled(true);
+        repaint();
+        return true;
+    }
+
     /**
      * 设置游戏模式
      */
     public void setGameMode(boolean isAIGame) {
+        abortAISearch();
         this.isAIGame = isAIGame;
         // 切换模式时自动重启游戏
         gameLogic.restart();
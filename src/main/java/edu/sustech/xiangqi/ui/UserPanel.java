@@ -192,8 +192,10 @@ public class UserPanel extends JPanel {
         }
         undoItem.addActionListener(e -> {
             boolean undone;
-            // (新) 检查是否是 AI 游戏
-            if (boardPanel.isAIGame()) {
+            // AI 还在思考时，中止思考后只需悔掉玩家刚走的一步
+            if (boardPanel.abortAISearch()) {
+                undone = gameLogic.undoMove();
+            } else if (boardPanel.isAIGame()) {
                 // 人机模式下，一次悔两步
                 undone = gameLogic.undoMove(); // 1. 悔棋 (AI 的一步)
                 if (undone) {
@@ -219,6 +221,7 @@ public class UserPanel extends JPanel {
         restartItem.addActionListener(e -> {
             int result = JOptionPane.showConfirmDialog(boardPanel, "确定要重开吗？", "确认", JOptionPane.YES_NO_OPTION);
             if (result == JOptionPane.YES_OPTION) {
+                boardPanel.abortAISearch();
                 gameLogic.restart();
                 boardPanel.repaint();
             }
@@ -233,6 +236,7 @@ public class UserPanel extends JPanel {
             String winner = gameLogic.isRedTurn() ? "黑方获胜" : "红方获胜";
             int result = JOptionPane.showConfirmDialog(boardPanel, "确定要投降吗？", "确认", JOptionPane.YES_NO_OPTION);
             if (result == JOptionPane.YES_OPTION) {
+                boardPanel.abortAISearch();
                 GameOverFrame.show(boardPanel, winner, () -> {
                     gameLogic.restart();
                     boardPanel.repaint();
@@ -251,6 +255,7 @@ public class UserPanel extends JPanel {
                 JOptionPane.YES_NO_OPTION);
                 
             if (result == JOptionPane.YES_OPTION) {
+                boardPanel.abortAISearch();
                 // 执行外部注入的退出逻辑
                 if (onExitAction != null) {
                     onExitAction.run();